@@ -11,13 +11,19 @@ import com.osm.s3.S3Service;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Random;
 import java.util.UUID;
 
-@SpringBootApplication
+// R2DBC is configured by R2dbcConfig, only for the /api/v2 routes
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableCaching
+@EnableScheduling
 public class Main {
 
 
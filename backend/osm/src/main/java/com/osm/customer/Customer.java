@@ -16,10 +16,6 @@ import java.util.Objects;
                 @UniqueConstraint(
                         name = "customer_email_unique",
                         columnNames = "email"
-                ),
-                @UniqueConstraint(
-                        name = "profile_image_id_unique",
-                        columnNames = "profileImageId"
                 )
         }
 )
@@ -59,10 +55,13 @@ public class Customer implements UserDetails {
     )
     private String password;
 
+    private String profileImageId;
+
+    @Version
     @Column(
-            unique = true
+            nullable = false
     )
-    private String profileImageId;
+    private Long version;
 
 
     public Customer() {
@@ -98,6 +97,11 @@ public class Customer implements UserDetails {
         this.profileImageId=profileImageId;
     }
 
+    public Customer(Long id, String name, String email, String password, Integer age, Gender gender, String profileImageId, Long version) {
+        this(id, name, email, password, age, gender, profileImageId);
+        this.version = version;
+    }
+
     public Long getId() {
         return id;
 
@@ -148,17 +152,25 @@ public class Customer implements UserDetails {
         this.profileImageId = profileImageId;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Customer customer = (Customer) o;
-        return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age) && gender == customer.gender && Objects.equals(password, customer.password) && Objects.equals(profileImageId, customer.profileImageId);
+        return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age) && gender == customer.gender && Objects.equals(password, customer.password) && Objects.equals(profileImageId, customer.profileImageId) && Objects.equals(version, customer.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, email, age, gender, password, profileImageId);
+        return Objects.hash(id, name, email, age, gender, password, profileImageId, version);
     }
 
 
@@ -172,6 +184,7 @@ public class Customer implements UserDetails {
                 ", gender=" + gender +
                 ", password='" + password + '\'' +
                 ", profileImageId='" + profileImageId + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -0,0 +1,15 @@
+package com.osm.customer;
+
+/**
+ * Names of the caches sitting in front of {@link CustomerDAO}. Ids are always
+ * cached as {@link Long} so that reads by {@code Integer} id and writes carrying
+ * a {@link Customer} evict the same entry.
+ */
+public final class CustomerCaches {
+
+    public static final String BY_ID = "customers";
+    public static final String BY_EMAIL = "customersByEmail";
+
+    private CustomerCaches() {
+    }
+}
@@ -1,29 +1,100 @@
 package com.osm.customer;
 
+import com.osm.exception.ResourceNotFoundException;
 import com.osm.jwt.JWTUtil;
+import com.osm.s3.PresignedUrl;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("api/v1/customers")
 public class CustomerControler {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final CacheControl IMMUTABLE =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
     private final CustomerService customerService;
+    private final CustomerExportService customerExportService;
+    private final CustomerJDBCImportService customerImportService;
     private final JWTUtil jwtUtil;
+    private final ProfileImageDelivery profileImageDelivery;
+    private final boolean asyncProfileImages;
+    private final ProfileImageUploadMode profileImageUploadMode;
 
-    public CustomerControler(CustomerService customerService, JWTUtil jwtUtil) {
+    public CustomerControler(CustomerService customerService, CustomerExportService customerExportService, CustomerJDBCImportService customerImportService, JWTUtil jwtUtil,
+                             @Value("${profile-image.delivery:proxy}") ProfileImageDelivery profileImageDelivery,
+                             @Value("${profile-image.async:false}") boolean asyncProfileImages,
+                             @Value("${profile-image.upload:direct}") ProfileImageUploadMode profileImageUploadMode) {
         this.customerService = customerService;
+        this.customerExportService = customerExportService;
+        this.customerImportService = customerImportService;
         this.jwtUtil = jwtUtil;
+        this.profileImageDelivery = profileImageDelivery;
+        this.asyncProfileImages = asyncProfileImages;
+        this.profileImageUploadMode = profileImageUploadMode;
     }
 
     @GetMapping
-    public List<CustomerDTO> getCustomers(){
-        return customerService.getAllCustomers();
+    public ResponseEntity<List<CustomerDTO>> getCustomers(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit){
+        CustomerPage page = customerService.getAllCustomers(cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null){
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.customers());
+    }
+
+    /**
+     * Resolves several customers in one call, e.g. {@code ?ids=3,1,2}, in the
+     * order of the ids.
+     */
+    @GetMapping(params = "ids")
+    public List<CustomerDTO> getCustomersByIds(@RequestParam("ids") List<Integer> ids){
+        return customerService.getCustomersByIds(ids);
+    }
+
+    @GetMapping("export")
+    public void exportCustomers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        CustomerExportFormat exportFormat = CustomerExportFormat.from(format);
+        response.setContentType(exportFormat.getMediaType().toString());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment()
+                        .filename("customers." + exportFormat.getExtension())
+                        .build()
+                        .toString()
+        );
+        customerExportService.exportCustomers(exportFormat, response.getOutputStream());
     }
 
     @GetMapping("{customerId}")
@@ -41,35 +112,195 @@ public class CustomerControler {
                 .build();
     }
 
+    @PostMapping("batch")
+    public List<CustomerRegistrationResult> registerCustomers(
+            @RequestBody List<CustomerRegistrationRequest> requests){
+        return customerService.registerCustomers(requests);
+    }
+
+    @PostMapping(value = "import", consumes = "text/csv")
+    public CustomerImportResult importCustomers(InputStream csv){
+        return customerImportService.importCsv(csv);
+    }
+
     @DeleteMapping("{customerId}")
     public void deleteCustomer(@PathVariable("customerId") Integer customerId){
         customerService.deleteCustomerById(customerId);
     }
 
     @PutMapping("{customerId}")
-    public void updateCustomer(
+    public CustomerDTO updateCustomer(
             @PathVariable("customerId") Integer customerId,
             @RequestBody CustomerUpdateRequest updateRequest){
-        customerService.updateCustomer(
+        return customerService.updateCustomer(
                 customerId,
                 updateRequest
         );
     }
 
+    /**
+     * Stores the image and makes it the customer's profile image. With
+     * {@code profile-image.upload: outbox} the image is only spooled and the answer
+     * is {@code 202 Accepted}, pointing to {@link #getCustomerProfileImageUpload}.
+     */
     @PostMapping(
             value = "{customerId}/profile-image",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
     )
-    public void uploadCustomerProfileImage(
+    public CompletableFuture<ResponseEntity<ProfileImageUploadStatus>> uploadCustomerProfileImage(
             @PathVariable("customerId") Integer customerId,
             @RequestParam("file") MultipartFile file) {
+        if (profileImageUploadMode == ProfileImageUploadMode.OUTBOX) {
+            ProfileImageUploadStatus upload = customerService.enqueueCustomerProfileImageUpload(customerId, file);
+            return CompletableFuture.completedFuture(ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/customers/%s/profile-image/uploads/%s"
+                            .formatted(customerId, upload.uploadId())))
+                    .body(upload));
+        }
+        if (asyncProfileImages) {
+            return customerService.uploadCustomerProfileImageAsync(customerId, file)
+                    .thenApply(done -> ResponseEntity.ok().build());
+        }
         customerService.uploadCustomerProfileImage(customerId, file);
+        return CompletableFuture.completedFuture(ResponseEntity.ok().build());
     }
 
-    @GetMapping("{customerId}/profile-image")
-    public byte[] getCustomerProfileImage(
+    @GetMapping("{customerId}/profile-image/uploads/{uploadId}")
+    public ProfileImageUploadStatus getCustomerProfileImageUpload(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("uploadId") UUID uploadId) {
+        return customerService.getCustomerProfileImageUpload(customerId, uploadId);
+    }
+
+    /**
+     * Returns a presigned url the client {@code PUT}s the image to, so the upload
+     * does not go through the application. The upload is then confirmed with
+     * {@link #confirmCustomerProfileImageUpload}.
+     */
+    @PostMapping("{customerId}/profile-image/uploads")
+    public ProfileImageUpload presignCustomerProfileImageUpload(
             @PathVariable("customerId") Integer customerId) {
-        return customerService.getCustomerProfileImage(customerId);
+        return customerService.presignCustomerProfileImageUpload(customerId);
+    }
+
+    @PostMapping("{customerId}/profile-image/uploads/{profileImageId}")
+    public void confirmCustomerProfileImageUpload(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("profileImageId") String profileImageId) {
+        customerService.confirmCustomerProfileImageUpload(customerId, profileImageId);
+    }
+
+    /**
+     * Serves the current profile image. Its content changes with every upload, so
+     * caches must revalidate; the ETag is the image id, so a matching
+     * {@code If-None-Match} is answered with 304 without reading from S3.
+     * <p>
+     * With {@code profile-image.async} the servlet thread is released while S3 is
+     * read, as it is for uploads, so slow S3 responses do not hold the Tomcat pool.
+     */
+    @GetMapping("{customerId}/profile-image")
+    public CompletableFuture<ResponseEntity<InputStreamResource>> getCustomerProfileImage(
+            @PathVariable("customerId") Integer customerId,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestHeader HttpHeaders headers) throws IOException {
+        String profileImageId = customerService.getCustomerProfileImageId(customerId);
+        return profileImage(customerId, profileImageId, size, headers, CacheControl.noCache().cachePublic());
+    }
+
+    /**
+     * Serves a given version of the profile image. The image id is the hash of its
+     * content, so an id always serves the same bytes and the response can be cached
+     * for good; only the current version is served.
+     */
+    @GetMapping("{customerId}/profile-image/{profileImageId}")
+    public CompletableFuture<ResponseEntity<InputStreamResource>> getCustomerProfileImageVersion(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("profileImageId") String profileImageId,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestHeader HttpHeaders headers) throws IOException {
+        if (!profileImageId.equals(customerService.getCustomerProfileImageId(customerId))) {
+            throw new ResourceNotFoundException(
+                    "customer with id [%s] profile image [%s] not found".formatted(customerId, profileImageId));
+        }
+        return profileImage(customerId, profileImageId, size, headers, IMMUTABLE);
+    }
+
+    private CompletableFuture<ResponseEntity<InputStreamResource>> profileImage(Integer customerId,
+                                                                                String profileImageId,
+                                                                                Integer size,
+                                                                                HttpHeaders headers,
+                                                                                CacheControl cacheControl) throws IOException {
+        if (profileImageDelivery == ProfileImageDelivery.REDIRECT) {
+            return CompletableFuture.completedFuture(redirectToProfileImage(customerId, profileImageId, size));
+        }
+        String eTag = "\"%s\"".formatted(size == null ? profileImageId : profileImageId + "_" + size);
+        if (isNotModified(headers.getIfNoneMatch(), eTag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .build());
+        }
+
+        if (asyncProfileImages) {
+            return customerService.getCustomerProfileImageAsync(customerId, profileImageId, size)
+                    .thenApply(image -> {
+                        try {
+                            return imageResponse(image, eTag, cacheControl);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+        return CompletableFuture.completedFuture(imageResponse(
+                customerService.getCustomerProfileImage(customerId, profileImageId, size), eTag, cacheControl));
+    }
+
+    private static ResponseEntity<InputStreamResource> imageResponse(ResponseInputStream<GetObjectResponse> image,
+                                                                     String eTag,
+                                                                     CacheControl cacheControl) throws IOException {
+        InputStream content = new BufferedInputStream(image);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .header("X-Content-Type-Options", "nosniff")
+                .contentType(imageType(content, image.response().contentType()));
+        if (image.response().contentLength() != null){
+            response.contentLength(image.response().contentLength());
+        }
+        return response.body(new InputStreamResource(content));
+    }
+
+    private ResponseEntity<InputStreamResource> redirectToProfileImage(Integer customerId,
+                                                                       String profileImageId,
+                                                                       Integer size) {
+        PresignedUrl url = customerService.presignCustomerProfileImage(customerId, profileImageId, size);
+        // reusing the redirect reuses the url, and with it the image cached by the client
+        Duration validity = Duration.between(Instant.now(), url.expiresAt());
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(url.url()))
+                .cacheControl(CacheControl.maxAge(validity.dividedBy(2)).cachePrivate())
+                .build();
+    }
+
+    // S3 keeps whatever type the upload declared, if any; only an image type is served
+    static MediaType imageType(InputStream content, String storedType) throws IOException {
+        String contentType = URLConnection.guessContentTypeFromStream(content);
+        if (contentType == null) {
+            contentType = storedType;
+        }
+        return contentType != null && contentType.startsWith("image/")
+                ? MediaType.parseMediaType(contentType)
+                : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    // If-None-Match uses the weak comparison
+    static boolean isNotModified(List<String> ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || candidate.equals(eTag) || candidate.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,43 @@
+package com.osm.customer;
+
+import com.osm.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for customer listings. It only carries the last id
+ * returned, so the next page is a {@code WHERE id > ?} index range scan
+ * and costs the same no matter how deep the client has paged.
+ */
+final class CustomerCursor {
+
+    private static final String PREFIX = "id:";
+
+    private CustomerCursor() {
+    }
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(
+                    Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8
+            );
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return Long.parseLong(decoded.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("Invalid cursor [%s]".formatted(cursor));
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package com.osm.customer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDAO {
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersAfterId(long afterId, int limit);
+    void streamAllCustomers(Consumer<Customer> consumer);
     Optional<Customer> selectCustomersById(int id);
+    /**
+     * Returns the customers with these ids, in no particular order; unknown ids
+     * are skipped.
+     */
+    List<Customer> selectCustomersByIds(Collection<Integer> ids);
 
-    void insertCustomer(Customer customer);
+    Optional<Long> insertCustomer(Customer customer);
+    int[] insertCustomers(List<Customer> customers);
     boolean existsPersonWithEmail(String email);
+    Set<String> selectExistingEmails(Collection<String> emails);
 
     void deleteCustomerById(Integer customerId);
     boolean existsPersonWithId(Integer id);
 
-    void updateCustomer(Customer update);
+    Optional<Customer> updateCustomer(Customer update);
 
     Optional<Customer> selectUserByEmail(String email);
-    void updateCustomerProfileImageId(String profileImageId, Integer customerId);
+    /**
+     * Returns the profile image id the customer had before, if any.
+     */
+    Optional<String> updateCustomerProfileImageId(String profileImageId, Integer customerId);
 
 }
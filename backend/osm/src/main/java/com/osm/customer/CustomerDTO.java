@@ -10,7 +10,8 @@ public record CustomerDTO (
         Integer age,
         List<String> roles,
         String username,
-        String profileImageId
+        String profileImageId,
+        Long version
 ){
 
 }
@@ -22,7 +22,8 @@ public class CustomerDTOMapper implements Function<Customer, CustomerDTO> {
                         .map(GrantedAuthority::getAuthority)
                         .collect(Collectors.toList()),
                 customer.getUsername(),
-                customer.getProfileImageId()
+                customer.getProfileImageId(),
+                customer.getVersion()
         );
     }
 }
@@ -0,0 +1,34 @@
+package com.osm.customer;
+
+import com.osm.exception.RequestValidationException;
+import org.springframework.http.MediaType;
+
+public enum CustomerExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    CustomerExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static CustomerExportFormat from(String format) {
+        for (CustomerExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("Unsupported export format [%s]".formatted(format));
+    }
+}
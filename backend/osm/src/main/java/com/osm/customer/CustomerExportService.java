@@ -0,0 +1,104 @@
+package com.osm.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole customer table to an output stream one row at a time.
+ * Rows come from {@link CustomerDAO#streamAllCustomers} and are written as
+ * soon as they are read, so memory use does not depend on the table size.
+ */
+@Service
+public class CustomerExportService {
+
+    private static final String CSV_HEADER =
+            "id,name,email,gender,age,roles,username,profile_image_id";
+
+    private final CustomerDAO customerDAO;
+    private final CustomerDTOMapper customerDTOMapper;
+    private final ObjectWriter jsonWriter;
+
+    public CustomerExportService(@Qualifier("jdbc") CustomerDAO customerDAO,
+                                 CustomerDTOMapper customerDTOMapper,
+                                 ObjectMapper objectMapper) {
+        this.customerDAO = customerDAO;
+        this.customerDTOMapper = customerDTOMapper;
+        this.jsonWriter = objectMapper.writerFor(CustomerDTO.class);
+    }
+
+    public void exportCustomers(CustomerExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)
+        );
+        try {
+            if (format == CustomerExportFormat.CSV) {
+                writeLine(writer, CSV_HEADER);
+            }
+            customerDAO.streamAllCustomers(customer -> {
+                CustomerDTO customerDTO = customerDTOMapper.apply(customer);
+                writeLine(writer, format == CustomerExportFormat.CSV
+                        ? toCsv(customerDTO)
+                        : toJson(customerDTO));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private String toJson(CustomerDTO customerDTO) {
+        try {
+            return jsonWriter.writeValueAsString(customerDTO);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsv(CustomerDTO customerDTO) {
+        return Stream.of(
+                        customerDTO.id(),
+                        customerDTO.name(),
+                        customerDTO.email(),
+                        customerDTO.gender(),
+                        customerDTO.age(),
+                        String.join(";", customerDTO.roles()),
+                        customerDTO.username(),
+                        customerDTO.profileImageId()
+                )
+                .map(CustomerExportService::escapeCsv)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private static void writeLine(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.osm.customer;
+
+public record CustomerImportResult(
+        long total,
+        long inserted,
+        long duplicates,
+        long rejected
+) {
+}
@@ -1,15 +1,35 @@
 package com.osm.customer;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDAO {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
 
@@ -27,6 +47,44 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
+    public List<Customer> selectCustomersAfterId(long afterId, int limit) {
+        var sql = """
+                SELECT * FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    /**
+     * Streams every row through a server-side cursor. The PostgreSQL driver
+     * only honours the fetch size inside a transaction, hence {@link Transactional},
+     * otherwise the whole result set would be buffered before the first row.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        var sql = """
+                SELECT * FROM customer
+                ORDER BY id
+                """;
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql,
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY
+                    );
+                    statement.setFetchSize(STREAM_FETCH_SIZE);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(customerRowMapper.mapRow(rs, rs.getRow()))
+        );
+    }
+
+    @Override
+    @Cacheable(cacheNames = CustomerCaches.BY_ID, key = "#id.longValue()", unless = "#result == null")
     public Optional<Customer> selectCustomersById(int id) {
         var sql = """ 
                 SELECT * FROM customer
@@ -39,36 +97,156 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var sql = """
+                SELECT * FROM customer
+                WHERE id = ANY(?)
+                """;
+        return jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("integer", ids.toArray()));
+                    return statement;
+                },
+                customerRowMapper
+        );
+    }
+
+    /**
+     * Inserts the customer in one round trip, letting the unique constraint on
+     * {@code email} arbitrate concurrent sign-ups. Returns the generated id, or an
+     * empty result when the email is already taken.
+     */
+    @Override
+    @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, key = "#customer.email")
+    public Optional<Long> insertCustomer(Customer customer) {
+        var sql = """
+        INSERT INTO customer(name, email, password, age, gender)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (email) DO NOTHING
+        RETURNING id
+        """;
+        return jdbcTemplate
+                .queryForList(
+                        sql,
+                        Long.class,
+                        customer.getName(),
+                        customer.getEmail(),
+                        customer.getPassword(),
+                        customer.getAge(),
+                        customer.getGender().toString()  // Convert enum value to string
+                )
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Inserts the customers with JDBC batches (rewritten into multi-row INSERTs by
+     * the driver when {@code reWriteBatchedInserts} is on). Rows whose email already
+     * exists are skipped and reported with an update count of 0.
+     * <p>
+     * Rewritten batches only report {@link Statement#SUCCESS_NO_INFO}, so those rows
+     * are resolved with one extra query: password hashes are salted, so a stored
+     * hash equal to ours means the row is the one we just inserted.
+     */
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
         var sql = """
         INSERT INTO customer(name, email, password, age, gender)
         VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (email) DO NOTHING
         """;
-        int result = jdbcTemplate.update(
+        int[][] batches = jdbcTemplate.batchUpdate(
                 sql,
-                customer.getName(),
-                customer.getEmail(),
-                customer.getPassword(),
-                customer.getAge(),
-                customer.getGender().toString()  // Convert enum value to string
+                customers,
+                INSERT_BATCH_SIZE,
+                (ps, customer) -> {
+                    ps.setString(1, customer.getName());
+                    ps.setString(2, customer.getEmail());
+                    ps.setString(3, customer.getPassword());
+                    ps.setInt(4, customer.getAge());
+                    ps.setString(5, customer.getGender().toString());
+                }
         );
-        System.out.println("jdbcTemplate.update = " + result);
+        int[] inserted = Arrays.stream(batches)
+                .flatMapToInt(Arrays::stream)
+                .toArray();
+        if (Arrays.stream(inserted).anyMatch(count -> count == Statement.SUCCESS_NO_INFO)) {
+            resolveUnknownInserts(customers, inserted);
+        }
+        return inserted;
     }
 
+    private void resolveUnknownInserts(List<Customer> customers, int[] inserted) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == Statement.SUCCESS_NO_INFO) {
+                emails.add(customers.get(i).getEmail());
+            }
+        }
+        var sql = """
+                SELECT email, password
+                FROM customer
+                WHERE email = ANY(?)
+                """;
+        Map<String, String> storedPasswords = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("text", emails.toArray()));
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> storedPasswords.put(rs.getString("email"), rs.getString("password"))
+        );
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == Statement.SUCCESS_NO_INFO) {
+                Customer customer = customers.get(i);
+                inserted[i] = customer.getPassword().equals(storedPasswords.get(customer.getEmail())) ? 1 : 0;
+            }
+        }
+    }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
         var sql = """
-                SELECT count(id)
-                FROM customer
-                WHERE email = ?
+                SELECT EXISTS(
+                    SELECT 1
+                    FROM customer
+                    WHERE email = ?
+                )
                 """;
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, email);
-        return count != null && count > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, email));
     }
 
     @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY(?)
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("text", emails.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString("email")
+        ));
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#customerId.longValue()"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
     public void deleteCustomerById(Integer customerId) {
         var sql = """
                 DELETE
@@ -83,37 +261,64 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     @Override
     public boolean existsPersonWithId(Integer id) {
         var sql = """
-                SELECT count(id)
-                FROM customer
-                WHERE id = ?
+                SELECT EXISTS(
+                    SELECT 1
+                    FROM customer
+                    WHERE id = ?
+                )
                 """;
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-        return count != null && count > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
     }
 
+    /**
+     * Applies every non-null column of {@code update} in a single statement and
+     * returns the updated row. When {@code update} carries a version the row is
+     * only updated if it still has that version; an empty result then means the
+     * customer is missing or was modified in the meantime.
+     */
     @Override
-    public void updateCustomer(Customer update) {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#update.id"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
+    public Optional<Customer> updateCustomer(Customer update) {
+        List<String> assignments = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
         if (update.getName() != null){
-            String sql = " UPDATE customer SET name = ? WHERE id = ?";
-            int nameResult = jdbcTemplate.update(sql, update.getName(), update.getId());
-            System.out.println("updated customer name result = " + nameResult);
+            assignments.add("name = ?");
+            args.add(update.getName());
         }
-
         if (update.getAge() != null){
-            String sql = "UPDATE customer SET age = ? WHERE id = ?";
-            int ageResult = jdbcTemplate.update(sql, update.getAge(), update.getId());
-            System.out.println("updated customer age result = " + ageResult);
+            assignments.add("age = ?");
+            args.add(update.getAge());
         }
-
         if (update.getEmail() != null){
-            String sql = "UPDATE customer SET email = ? WHERE id = ?";
-            int emailResult = jdbcTemplate.update(sql, update.getEmail(), update.getId());
-            System.out.println("updated customer email result = " + emailResult);
+            assignments.add("email = ?");
+            args.add(update.getEmail());
+        }
+        if (assignments.isEmpty()){
+            return selectCustomersById(Math.toIntExact(update.getId()));
+        }
+        assignments.add("version = version + 1");
+
+        StringBuilder sql = new StringBuilder("UPDATE customer SET ")
+                .append(String.join(", ", assignments))
+                .append(" WHERE id = ?");
+        args.add(update.getId());
+        if (update.getVersion() != null){
+            sql.append(" AND version = ?");
+            args.add(update.getVersion());
         }
+        sql.append(" RETURNING *");
 
+        return jdbcTemplate
+                .query(sql.toString(), customerRowMapper, args.toArray())
+                .stream()
+                .findFirst();
     }
 
     @Override
+    @Cacheable(cacheNames = CustomerCaches.BY_EMAIL, unless = "#result == null")
     public Optional<Customer> selectUserByEmail(String email) {
         var sql = """ 
                 SELECT * FROM customer
@@ -126,13 +331,30 @@ public class CustomerJDBCDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#customerId.longValue()"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
+    public Optional<String> updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        // the row lock makes concurrent updates see each other's image as the previous one
         var sql = """
+                WITH previous AS (
+                    SELECT id, profile_image_id
+                    FROM customer
+                    WHERE id = ?
+                    FOR UPDATE
+                )
                 UPDATE customer
                 SET profile_image_id = ?
-                WHERE id = ?
+                FROM previous
+                WHERE customer.id = previous.id
+                RETURNING previous.profile_image_id
                 """;
 
-        jdbcTemplate.update(sql, profileImageId, customerId);
+        return jdbcTemplate
+                .queryForList(sql, String.class, customerId, profileImageId)
+                .stream()
+                .filter(Objects::nonNull)
+                .findFirst();
     }
 }
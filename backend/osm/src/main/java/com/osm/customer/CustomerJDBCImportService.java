@@ -0,0 +1,118 @@
+package com.osm.customer;
+
+import com.osm.exception.RequestValidationException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Bulk import of customer CSV files through PostgreSQL {@code COPY}.
+ * <p>
+ * The upload is streamed straight into a temporary staging table, then merged
+ * into {@code customer} with one {@code INSERT ... ON CONFLICT (email) DO NOTHING}.
+ * Everything runs in one transaction on one connection so the staging table is
+ * private to the import and dropped on commit.
+ * <p>
+ * Expected columns: {@code name,email,password,age,gender} with a header line.
+ * Passwords must already be BCrypt hashes; rows with anything else are rejected.
+ */
+@Repository
+public class CustomerJDBCImportService {
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE TEMPORARY TABLE customer_import (
+                name TEXT,
+                email TEXT,
+                password TEXT,
+                age TEXT,
+                gender TEXT
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_INTO_STAGING_TABLE = """
+            COPY customer_import (name, email, password, age, gender)
+            FROM STDIN WITH (FORMAT csv, HEADER true)
+            """;
+
+    private static final String VALID_ROW = """
+            btrim(name) <> ''
+            AND btrim(email) <> ''
+            AND password ~ '^[$]2[aby]?[$][0-9]{2}[$][./A-Za-z0-9]{53}$'
+            AND btrim(age) ~ '^[0-9]{1,3}$'
+            AND upper(btrim(gender)) IN ('MALE', 'FEMALE')
+            """;
+
+    private static final String COUNT_VALID_ROWS =
+            "SELECT count(*) FROM customer_import WHERE " + VALID_ROW;
+
+    private static final String MERGE_INTO_CUSTOMER = """
+            INSERT INTO customer(name, email, password, age, gender)
+            SELECT btrim(name), btrim(email), password, btrim(age)::int, upper(btrim(gender))
+            FROM customer_import
+            WHERE %s
+            ON CONFLICT (email) DO NOTHING
+            """.formatted(VALID_ROW);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CustomerJDBCImportService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public CustomerImportResult importCsv(InputStream csv) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute(
+                (ConnectionCallback<CustomerImportResult>) connection -> importCsv(connection, csv)
+        ));
+    }
+
+    private CustomerImportResult importCsv(Connection connection, InputStream csv) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_TABLE);
+
+            long total = copyIntoStagingTable(connection, csv);
+
+            long valid;
+            try (ResultSet rs = statement.executeQuery(COUNT_VALID_ROWS)) {
+                rs.next();
+                valid = rs.getLong(1);
+            }
+            long inserted = statement.executeLargeUpdate(MERGE_INTO_CUSTOMER);
+
+            return new CustomerImportResult(
+                    total,
+                    inserted,
+                    valid - inserted,
+                    total - valid
+            );
+        }
+    }
+
+    private static long copyIntoStagingTable(Connection connection, InputStream csv) throws SQLException {
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        try {
+            return copyManager.copyIn(COPY_INTO_STAGING_TABLE, csv);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to read customer import", e);
+        } catch (SQLException e) {
+            // malformed CSV (wrong column count, bad quoting, ...) aborts the COPY
+            if (e.getSQLState() != null && e.getSQLState().startsWith("22")) {
+                throw new RequestValidationException("Malformed customer CSV: " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+}
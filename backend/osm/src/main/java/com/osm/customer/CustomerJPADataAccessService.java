@@ -1,18 +1,35 @@
-=package com.osm.customer;
+package com.osm.customer;
 
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDAO{
+
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final String EMAIL_UNIQUE = "customer_email_unique";
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository,
+                                        EntityManager entityManager) {
         this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -24,13 +41,70 @@ public class CustomerJPADataAccessService implements CustomerDAO{
     }
 
     @Override
+    public List<Customer> selectCustomersAfterId(long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId,
+                PageRequest.of(0, limit)
+        );
+    }
+
+    /**
+     * Walks the table page by page with the keyset query. With open-in-view the
+     * request's persistence context spans every page, so it is cleared after each
+     * one to keep loaded entities from piling up in the session.
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        long afterId = 0;
+        List<Customer> page;
+        do {
+            page = selectCustomersAfterId(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+            entityManager.clear();
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CustomerCaches.BY_ID, key = "#id.longValue()", unless = "#result == null")
     public Optional<Customer> selectCustomersById(int id) {
         return customerRepository.findById(id);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return customerRepository.findAllById(ids);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, key = "#customer.email")
+    public Optional<Long> insertCustomer(Customer customer) {
+        try {
+            return Optional.ofNullable(customerRepository.save(customer))
+                    .map(Customer::getId);
+        } catch (DataIntegrityViolationException e) {
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && EMAIL_UNIQUE.equals(violation.getConstraintName())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the customers one by one, each saved in its own transaction, so a
+     * taken email skips only its own row, reported with an update count of 0.
+     */
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        return customers.stream()
+                .mapToInt(customer -> insertCustomer(customer).isPresent() ? 1 : 0)
+                .toArray();
     }
 
     @Override
@@ -39,6 +113,18 @@ public class CustomerJPADataAccessService implements CustomerDAO{
     }
 
     @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return customerRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#customerId.longValue()"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
     public void deleteCustomerById(Integer customerId) {
         customerRepository.deleteById(customerId);
     }
@@ -48,20 +134,49 @@ public class CustomerJPADataAccessService implements CustomerDAO{
         return customerRepository.existsCustomerById(id);
     }
 
+    /**
+     * Same contract as {@link CustomerJDBCDataAccessService#updateCustomer}. The
+     * update is a conditional JPQL statement rather than a merge of {@code update},
+     * whose unset columns would otherwise be written as nulls. Without a version,
+     * the current one guards the update.
+     */
     @Override
-    public void updateCustomer(Customer update) {
-        customerRepository.save(update);
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#update.id"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
+    @Transactional
+    public Optional<Customer> updateCustomer(Customer update) {
+        Integer id = Math.toIntExact(update.getId());
+        if (update.getName() == null && update.getEmail() == null && update.getAge() == null) {
+            return customerRepository.findById(id);
+        }
+        Long version = update.getVersion() != null
+                ? update.getVersion()
+                : customerRepository.findById(id).map(Customer::getVersion).orElse(null);
+        if (version == null || customerRepository.updateCustomerAtVersion(
+                update.getId(), update.getName(), update.getEmail(), update.getAge(), version) == 0) {
+            return Optional.empty();
+        }
+        return customerRepository.findById(id);
     }
 
     @Override
+    @Cacheable(cacheNames = CustomerCaches.BY_EMAIL, unless = "#result == null")
     public Optional<Customer> selectUserByEmail(String email) {
         return customerRepository.findCustomerByEmail(email);
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CustomerCaches.BY_ID, key = "#customerId.longValue()"),
+            @CacheEvict(cacheNames = CustomerCaches.BY_EMAIL, allEntries = true)
+    })
+    @Transactional
+    public Optional<String> updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        Optional<String> previous = customerRepository.findProfileImageIdForUpdate(customerId);
         customerRepository.updateProfileImageId(profileImageId, customerId);
-        
+        return previous;
     }
 
 }
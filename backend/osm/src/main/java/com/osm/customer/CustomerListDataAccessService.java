@@ -3,12 +3,19 @@ package com.osm.customer;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDAO {
 
+    private static final AtomicLong ids = new AtomicLong();
     private static List<Customer> customers;
     static {
         customers = new ArrayList<>();
@@ -19,6 +26,7 @@ public class CustomerListDataAccessService implements CustomerDAO {
                 22,
                 Gender.MALE
         );
+        Oussama.setId(ids.incrementAndGet());
         customers.add(Oussama);
     }
     @Override
@@ -26,6 +34,20 @@ public class CustomerListDataAccessService implements CustomerDAO {
         return customers;
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(long afterId, int limit) {
+        return customers.stream()
+                .filter(c -> c.getId() != null && c.getId() > afterId)
+                .sorted(Comparator.comparing(Customer::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        customers.forEach(consumer);
+    }
+
     @Override
     public Optional<Customer> selectCustomersById(int id) {
         return  customers.stream().
@@ -35,8 +57,27 @@ public class CustomerListDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersByIds(Collection<Integer> ids) {
+        return customers.stream()
+                .filter(c -> c.getId() != null && ids.contains(c.getId().intValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized Optional<Long> insertCustomer(Customer customer) {
+        if (existsPersonWithEmail(customer.getEmail())) {
+            return Optional.empty();
+        }
+        customer.setId(ids.incrementAndGet());
         customers.add(customer);
+        return Optional.of(customer.getId());
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> batch) {
+        return batch.stream()
+                .mapToInt(c -> insertCustomer(c).isPresent() ? 1 : 0)
+                .toArray();
     }
 
     @Override
@@ -45,6 +86,14 @@ public class CustomerListDataAccessService implements CustomerDAO {
                 .anyMatch(c -> c.getEmail().equals(email));
     }
 
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customers.stream()
+                .map(Customer::getEmail)
+                .filter(emails::contains)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public void deleteCustomerById(Integer customerId) {
         customers.stream()
@@ -60,9 +109,9 @@ public class CustomerListDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void updateCustomer(Customer update) {
+    public Optional<Customer> updateCustomer(Customer update) {
         customers.add(update);
-
+        return Optional.of(update);
     }
 
     @Override
@@ -74,7 +123,8 @@ public class CustomerListDataAccessService implements CustomerDAO {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    public Optional<String> updateCustomerProfileImageId(String profileImageId, Integer customerId) {
         //TODO
+        return Optional.empty();
     }
 }
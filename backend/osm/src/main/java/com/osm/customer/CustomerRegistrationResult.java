@@ -0,0 +1,16 @@
+package com.osm.customer;
+
+public record CustomerRegistrationResult(
+        int index,
+        String email,
+        boolean registered,
+        String error
+) {
+    static CustomerRegistrationResult registered(int index, String email) {
+        return new CustomerRegistrationResult(index, email, true, null);
+    }
+
+    static CustomerRegistrationResult failed(int index, String email, String error) {
+        return new CustomerRegistrationResult(index, email, false, error);
+    }
+}
@@ -3,56 +3,139 @@ package com.osm.customer;
 import com.osm.exception.DuplicateResourceException;
 import com.osm.exception.RequestValidationException;
 import com.osm.exception.ResourceNotFoundException;
+import com.osm.exception.ServiceUnavailableException;
+import com.osm.exception.StaleResourceException;
+import com.osm.s3.PresignedUrl;
+import com.osm.s3.S3AsyncService;
 import com.osm.s3.S3Buckets;
 import com.osm.s3.S3Service;
+import com.osm.threads.SingleFlight;
 import io.micrometer.common.util.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class CustomerService {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BATCH_REGISTRATIONS = 50_000;
+
     private final CustomerDAO customerDAO;
     private final PasswordEncoder passwordEncoder;
     private final CustomerDTOMapper customerDTOMapper;
     private final S3Service s3Service;
+    private final S3AsyncService s3AsyncService;
     private final S3Buckets s3Buckets;
+    private final ProfileImageResizer profileImageResizer;
+    private final ProfileImageIndex profileImageIndex;
+    private final ProfileImageSpool profileImageSpool;
+    private final ProfileImageOutbox profileImageOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final SingleFlight<Integer, Optional<Customer>> customerReads;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDAO customerDAO, PasswordEncoder passwordEncoder, CustomerDTOMapper customerDTOMapper, S3Service s3Service, S3Buckets s3Buckets) {
+    public CustomerService(@Qualifier("jdbc") CustomerDAO customerDAO, PasswordEncoder passwordEncoder, CustomerDTOMapper customerDTOMapper, S3Service s3Service, S3AsyncService s3AsyncService, S3Buckets s3Buckets, ProfileImageResizer profileImageResizer, ProfileImageIndex profileImageIndex, ProfileImageSpool profileImageSpool, ProfileImageOutbox profileImageOutbox, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.customerDAO = customerDAO;
         this.passwordEncoder = passwordEncoder;
         this.customerDTOMapper = customerDTOMapper;
         this.s3Service = s3Service;
+        this.s3AsyncService = s3AsyncService;
         this.s3Buckets = s3Buckets;
+        this.profileImageResizer = profileImageResizer;
+        this.profileImageIndex = profileImageIndex;
+        this.profileImageSpool = profileImageSpool;
+        this.profileImageOutbox = profileImageOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.customerReads = new SingleFlight<>("customers", meterRegistry);
     }
 
-    public List<CustomerDTO> getAllCustomers(){
-        return customerDAO.selectAllCustomers()
-                .stream()
-                .map(customerDTOMapper ).collect(Collectors.toList());
+    public CustomerPage getAllCustomers(String cursor, Integer limit){
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE){
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        long afterId = CustomerCursor.decode(cursor);
+
+        // fetch one extra row to know whether there is a next page
+        List<Customer> customers = customerDAO.selectCustomersAfterId(afterId, pageSize + 1);
+        String nextCursor = null;
+        if (customers.size() > pageSize){
+            customers = customers.subList(0, pageSize);
+            nextCursor = CustomerCursor.encode(customers.get(pageSize - 1).getId());
+        }
+        return new CustomerPage(
+                customers.stream()
+                        .map(customerDTOMapper).collect(Collectors.toList()),
+                nextCursor
+        );
     }
 
     public CustomerDTO getCustomer(Integer id){
-        return customerDAO.selectCustomersById(id)
+        return selectCustomer(id)
                 .map(customerDTOMapper)
                 .orElseThrow(
                 () -> new ResourceNotFoundException("Customer with id [%s] not found".formatted(id))
         );
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
-        //check if email exists then add it
-        String email = customerRegistrationRequest.email();
-        if (customerDAO.existsPersonWithEmail(email)){
-            throw new DuplicateResourceException("Email already taken");
+    /**
+     * Returns the customers with these ids, read in one query, in the order they
+     * were asked for. Unknown ids are skipped and repeated ones returned once.
+     */
+    public List<CustomerDTO> getCustomersByIds(List<Integer> ids){
+        Set<Integer> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_PAGE_SIZE){
+            throw new RequestValidationException(
+                    "ids must hold between 1 and %s ids".formatted(MAX_PAGE_SIZE));
         }
+        Map<Long, Customer> customers = customerDAO.selectCustomersByIds(distinctIds).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return distinctIds.stream()
+                .map(id -> customers.get(id.longValue()))
+                .filter(Objects::nonNull)
+                .map(customerDTOMapper)
+                .collect(Collectors.toList());
+    }
+
+    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
+        // the insert itself rejects a taken email, no check-then-insert race
         Customer customer = new Customer(
                 customerRegistrationRequest.name(),
                 customerRegistrationRequest.email(),
@@ -60,14 +143,122 @@ public class CustomerService {
                 customerRegistrationRequest.age(),
                 customerRegistrationRequest.gender()
         );
-        customerDAO.insertCustomer(customer);
+        customerDAO.insertCustomer(customer)
+                .orElseThrow(() -> new DuplicateResourceException("Email already taken"));
+    }
+
+    /**
+     * Registers a whole batch of customers at once: one query checks every email,
+     * passwords are hashed in parallel and the rows go in through batched inserts.
+     * Each request gets its own result, in the same order as the input.
+     */
+    public List<CustomerRegistrationResult> registerCustomers(List<CustomerRegistrationRequest> requests){
+        if (requests.size() > MAX_BATCH_REGISTRATIONS){
+            throw new RequestValidationException(
+                    "A batch can register at most %s customers".formatted(MAX_BATCH_REGISTRATIONS));
+        }
+        CustomerRegistrationResult[] results = new CustomerRegistrationResult[requests.size()];
+
+        // email -> index of the first request using it
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++){
+            CustomerRegistrationRequest request = requests.get(i);
+            String error = validateRegistration(request);
+            if (error != null){
+                results[i] = CustomerRegistrationResult.failed(
+                        i, request == null ? null : request.email(), error);
+            } else if (candidates.putIfAbsent(request.email(), i) != null){
+                results[i] = CustomerRegistrationResult.failed(i, request.email(), "Email already taken");
+            }
+        }
+
+        Set<String> existingEmails = customerDAO.selectExistingEmails(candidates.keySet());
+        List<Integer> indexes = new ArrayList<>();
+        candidates.forEach((email, index) -> {
+            if (existingEmails.contains(email)){
+                results[index] = CustomerRegistrationResult.failed(index, email, "Email already taken");
+            } else {
+                indexes.add(index);
+            }
+        });
 
+        // a row the busy password encoder rejects fails on its own, the rest of the batch goes on
+        String[] passwords = new String[requests.size()];
+        indexes.parallelStream().forEach(index -> {
+            CustomerRegistrationRequest request = requests.get(index);
+            try {
+                passwords[index] = passwordEncoder.encode(request.password());
+            } catch (ServiceUnavailableException e) {
+                results[index] = CustomerRegistrationResult.failed(index, request.email(), e.getMessage());
+            }
+        });
+        List<Integer> hashed = indexes.stream()
+                .filter(index -> passwords[index] != null)
+                .toList();
+        if (hashed.isEmpty()){
+            return Arrays.asList(results);
+        }
+
+        List<Customer> customers = hashed.stream()
+                .map(index -> {
+                    CustomerRegistrationRequest request = requests.get(index);
+                    return new Customer(
+                            request.name(),
+                            request.email(),
+                            passwords[index],
+                            request.age(),
+                            request.gender()
+                    );
+                })
+                .collect(Collectors.toList());
+
+        int[] inserted = customerDAO.insertCustomers(customers);
+        for (int i = 0; i < hashed.size(); i++){
+            int index = hashed.get(i);
+            String email = requests.get(index).email();
+            results[index] = inserted[i] == 0
+                    ? CustomerRegistrationResult.failed(index, email, "Email already taken")
+                    : CustomerRegistrationResult.registered(index, email);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static String validateRegistration(CustomerRegistrationRequest request){
+        if (request == null){
+            return "Registration request is missing";
+        }
+        if (StringUtils.isBlank(request.name())){
+            return "Name is required";
+        }
+        if (StringUtils.isBlank(request.email())){
+            return "Email is required";
+        }
+        if (StringUtils.isBlank(request.password())){
+            return "Password is required";
+        }
+        if (request.age() == null){
+            return "Age is required";
+        }
+        if (request.gender() == null){
+            return "Gender is required";
+        }
+        return null;
     }
 
     public void deleteCustomerById(Integer id){
-        checkIfCustomerExistsOrThrow(id);
+        String profileImageId = customerDAO.selectCustomersById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Customer with id [%s] not found".formatted(id)))
+                .getProfileImageId();
 
         customerDAO.deleteCustomerById(id);
+        if (profileImageId != null){
+            profileImageIndex.release(profileImageId);
+        }
+    }
+
+    // concurrent reads of the same customer share one DAO call
+    private Optional<Customer> selectCustomer(Integer id) {
+        return customerReads.execute(id, () -> customerDAO.selectCustomersById(id));
     }
 
     private void checkIfCustomerExistsOrThrow(Integer id) {
@@ -76,29 +267,32 @@ public class CustomerService {
         }
     }
 
-    public void updateCustomer(Integer customerId, CustomerUpdateRequest updateRequest){
+    public CustomerDTO updateCustomer(Integer customerId, CustomerUpdateRequest updateRequest){
+        if (updateRequest.version() != null){
+            return updateCustomerAtVersion(customerId, updateRequest);
+        }
         Customer customer = customerDAO.selectCustomersById(customerId)
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Customer with id [%s] not found".formatted(customerId))
                 );
-        boolean changes = false;
+        // only the changed columns are sent, at the version they were compared with
+        Customer update = new Customer();
+        update.setId(customer.getId());
+        update.setVersion(customer.getVersion());
 
         if (updateRequest.name() != null && !updateRequest.name().equals(customer.getName())){
-            customer.setName(updateRequest.name());
-            changes = true;
+            update.setName(updateRequest.name());
         }
 
         if (updateRequest.age() != null && !updateRequest.age().equals(customer.getAge())){
-            customer.setAge(updateRequest.age());
-             changes = true;
+            update.setAge(updateRequest.age());
         }
 
         if (updateRequest.email() != null && !updateRequest.email().equals(customer.getEmail())){
             if (customerDAO.existsPersonWithEmail(updateRequest.email())){
                 throw new DuplicateResourceException("Email is already taken");
             }
-            customer.setEmail(updateRequest.email());
-            changes = true;
+            update.setEmail(updateRequest.email());
         }
 /*
         if (updateRequest.gender() != null && !updateRequest.gender().equals(customer.getGender())){
@@ -109,32 +303,228 @@ public class CustomerService {
 
 
  */
-        if (!changes){
+        if (update.getName() == null && update.getAge() == null && update.getEmail() == null){
             throw new RequestValidationException("No data changes found !!");
         }
 
-        customerDAO.updateCustomer(customer);
+        return applyUpdate(customerId, update);
+    }
+
+    /**
+     * The client already knows the version it is editing, so there is no need to
+     * read the row first: the conditional UPDATE both applies the change and
+     * detects concurrent modifications in a single round trip.
+     */
+    private CustomerDTO updateCustomerAtVersion(Integer customerId, CustomerUpdateRequest updateRequest){
+        if (updateRequest.name() == null && updateRequest.email() == null && updateRequest.age() == null){
+            throw new RequestValidationException("No data changes found !!");
+        }
+        Customer update = new Customer();
+        update.setId(customerId.longValue());
+        update.setName(updateRequest.name());
+        update.setEmail(updateRequest.email());
+        update.setAge(updateRequest.age());
+        update.setVersion(updateRequest.version());
 
+        return applyUpdate(customerId, update);
+    }
+
+    private CustomerDTO applyUpdate(Integer customerId, Customer update){
+        Optional<Customer> updated;
+        try {
+            updated = customerDAO.updateCustomer(update);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("Email is already taken");
+        }
+        return updated
+                .map(customerDTOMapper)
+                .orElseThrow(() -> {
+                    checkIfCustomerExistsOrThrow(customerId);
+                    return new StaleResourceException(
+                            "Customer with id [%s] was modified, expected version [%s]"
+                                    .formatted(customerId, update.getVersion()));
+                });
     }
 
+    /**
+     * Stores the original image and, when it can be decoded, its thumbnails under
+     * {@code <original key>_<size>}. The customer only points to the new image once
+     * all of them are stored.
+     * <p>
+     * Images are identified by the SHA-256 of their content: an image some customer
+     * already uploaded is only referenced again, without writing to S3.
+     */
     public void uploadCustomerProfileImage(Integer customerId,
                                            MultipartFile file) {
         checkIfCustomerExistsOrThrow(customerId);
+        try {
+            String profileImageId;
+            try (InputStream content = file.getInputStream()) {
+                profileImageId = sha256(content);
+            }
+            storeProfileImage(customerId, profileImageId, file.getSize(), file::getInputStream, () -> true);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to upload profile image", e);
+        }
+    }
+
+    /**
+     * Accepts an upload for {@link ProfileImageUploadWorker} to store: the image is
+     * spooled to local disk and recorded in the outbox, and the caller follows the
+     * returned status until it is done.
+     */
+    public ProfileImageUploadStatus enqueueCustomerProfileImageUpload(Integer customerId,
+                                                                      MultipartFile file) {
+        checkIfCustomerExistsOrThrow(customerId);
+        UUID uploadId = UUID.randomUUID();
+        try {
+            String profileImageId;
+            try (InputStream content = file.getInputStream()) {
+                profileImageId = profileImageSpool.write(uploadId, content, file.getSize());
+            }
+            try {
+                profileImageOutbox.insert(uploadId, customerId, profileImageId, file.getSize());
+            } catch (RuntimeException e) {
+                profileImageSpool.delete(uploadId);
+                throw e;
+            }
+            return new ProfileImageUploadStatus(
+                    uploadId, ProfileImageUploadStatus.Status.PENDING, profileImageId, 0, null, Instant.now());
+        } catch (IOException e) {
+            throw new RuntimeException("failed to upload profile image", e);
+        }
+    }
+
+    /**
+     * Stores an upload taken from the outbox. S3 is written outside any transaction;
+     * the upload is then marked done in the short one that points the customer to
+     * the image. Returns {@code false} when the upload was no longer pending.
+     */
+    boolean storeSpooledProfileImage(ProfileImageOutbox.PendingUpload upload) throws IOException {
+        return storeProfileImage(
+                upload.customerId(),
+                upload.profileImageId(),
+                upload.size(),
+                () -> profileImageSpool.open(upload.id()),
+                // locks the upload, a customer deleted meanwhile took it along
+                () -> profileImageOutbox.markDone(upload.id())
+        );
+    }
+
+    public ProfileImageUploadStatus getCustomerProfileImageUpload(Integer customerId, UUID uploadId) {
+        return profileImageOutbox.selectUpload(customerId, uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "customer with id [%s] profile image upload [%s] not found".formatted(customerId, uploadId)));
+    }
+
+    /**
+     * Same as {@link #uploadCustomerProfileImage}, without holding the calling thread
+     * while S3 stores the images. The upload is moved to a temporary file first, as
+     * the request that received it may be recycled before S3 is done with it.
+     */
+    public CompletableFuture<Void> uploadCustomerProfileImageAsync(Integer customerId,
+                                                                   MultipartFile file) {
+        checkIfCustomerExistsOrThrow(customerId);
+        Path original;
+        String profileImageId;
+        long size = file.getSize();
+        Map<Integer, byte[]> thumbnails = Map.of();
+        try {
+            original = Files.createTempFile("profile-image-", null);
+            try {
+                file.transferTo(original);
+                try (InputStream content = Files.newInputStream(original)) {
+                    profileImageId = sha256(content);
+                }
+                if (profileImageIndex.acquire(profileImageId, size)) {
+                    useProfileImage(customerId, profileImageId, size, true, () -> true);
+                    Files.delete(original);
+                    return CompletableFuture.completedFuture(null);
+                }
+                try (InputStream content = Files.newInputStream(original)) {
+                    thumbnails = profileImageResizer.thumbnails(content);
+                } catch (IOException | RuntimeException e) {
+                    profileImageIndex.release(profileImageId);
+                    throw e;
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(original);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed to upload profile image", e);
+        }
+
+        String key = contentKey(profileImageId);
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        uploads.add(s3AsyncService.putObject(s3Buckets.getCustomer(), key, original));
+        thumbnails.forEach((thumbnailSize, thumbnail) -> uploads.add(s3AsyncService.putObject(
+                s3Buckets.getCustomer(),
+                thumbnailKey(key, thumbnailSize),
+                thumbnail
+        )));
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                .whenComplete((done, e) -> {
+                    original.toFile().delete();
+                    if (e != null) {
+                        profileImageIndex.release(profileImageId);
+                    }
+                })
+                .thenRun(() -> useProfileImage(customerId, profileImageId, size, false, () -> true));
+    }
+
+    /**
+     * Starts a direct upload: the client {@code PUT}s the image to the returned url,
+     * then confirms it with {@link #confirmCustomerProfileImageUpload}.
+     */
+    public ProfileImageUpload presignCustomerProfileImageUpload(Integer customerId) {
+        checkIfCustomerExistsOrThrow(customerId);
         String profileImageId = UUID.randomUUID().toString();
+        PresignedUrl url = s3Service.presignPutObject(
+                s3Buckets.getCustomer(),
+                profileImageKey(customerId, profileImageId)
+        );
+        return new ProfileImageUpload(profileImageId, url.url(), url.expiresAt());
+    }
+
+    /**
+     * Makes an image uploaded to a presigned url the current profile image. The
+     * upload is hashed and stored by content, with its thumbnails, as
+     * {@link #uploadCustomerProfileImage} does; the uploaded object is then deleted.
+     */
+    public void confirmCustomerProfileImageUpload(Integer customerId, String uploadId) {
+        checkIfCustomerExistsOrThrow(customerId);
+        if (!isProfileImageId(uploadId)) {
+            throw new RequestValidationException(
+                    "invalid profile image id [%s]".formatted(uploadId));
+        }
+        String key = profileImageKey(customerId, uploadId);
         try {
-            s3Service.putObject(
-                    s3Buckets.getCustomer(),
-                    "profile-images/%s/%s".formatted(customerId, profileImageId),
-                    file.getBytes()
-            );
+            String profileImageId;
+            long size;
+            try (ResponseInputStream<GetObjectResponse> content =
+                         s3Service.getObjectStream(s3Buckets.getCustomer(), key)) {
+                size = content.response().contentLength();
+                profileImageId = sha256(content);
+            }
+            storeProfileImage(customerId, profileImageId, size,
+                    () -> s3Service.getObjectStream(s3Buckets.getCustomer(), key), () -> true);
+        } catch (NoSuchKeyException e) {
+            throw new ResourceNotFoundException(
+                    "customer with id [%s] profile image [%s] was not uploaded".formatted(customerId, uploadId));
         } catch (IOException e) {
             throw new RuntimeException("failed to upload profile image", e);
         }
-        customerDAO.updateCustomerProfileImageId(profileImageId, customerId);
+        s3Service.deleteObjects(s3Buckets.getCustomer(), List.of(key));
     }
 
-    public byte[] getCustomerProfileImage(Integer customerId) {
-        var customer = customerDAO.selectCustomersById(customerId)
+    /**
+     * Returns the id of the current profile image. The id is the SHA-256 of the
+     * image content, so it identifies the content without reading it from S3.
+     * Images stored before that keep a random id, which was never reused.
+     */
+    public String getCustomerProfileImageId(Integer customerId) {
+        var customer = selectCustomer(customerId)
                 .map(customerDTOMapper)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "customer with id [%s] not found".formatted(customerId)
@@ -144,11 +534,207 @@ public class CustomerService {
             throw new ResourceNotFoundException(
                     "customer with id [%s] profile image not found".formatted(customerId));
         }
+        return customer.profileImageId();
+    }
+
+    /**
+     * Returns the original image, or the thumbnail of the given {@code size}. Images
+     * stored without thumbnails (uploaded before they existed, or not decodable)
+     * fall back to the original.
+     */
+    public ResponseInputStream<GetObjectResponse> getCustomerProfileImage(Integer customerId,
+                                                                          String profileImageId,
+                                                                          Integer size) {
+        checkProfileImageSize(size);
+
+        String key = profileImageKey(customerId, profileImageId);
+        if (size != null) {
+            try {
+                return s3Service.getObjectStream(s3Buckets.getCustomer(), thumbnailKey(key, size));
+            } catch (NoSuchKeyException e) {
+                // no thumbnails for this image, serve the original
+            }
+        }
+        try {
+            return s3Service.getObjectStream(s3Buckets.getCustomer(), key);
+        } catch (NoSuchKeyException e) {
+            throw new ResourceNotFoundException(
+                    "customer with id [%s] profile image not found".formatted(customerId));
+        }
+    }
+
+    /**
+     * Same as {@link #getCustomerProfileImage}, without holding the calling thread
+     * while S3 answers.
+     */
+    public CompletableFuture<ResponseInputStream<GetObjectResponse>> getCustomerProfileImageAsync(Integer customerId,
+                                                                                                  String profileImageId,
+                                                                                                  Integer size) {
+        checkProfileImageSize(size);
+
+        String key = profileImageKey(customerId, profileImageId);
+        if (size == null) {
+            return getOriginalProfileImageAsync(customerId, key);
+        }
+        return s3AsyncService.getObject(s3Buckets.getCustomer(), thumbnailKey(key, size))
+                .exceptionallyCompose(e -> S3AsyncService.isNoSuchKey(e)
+                        // no thumbnails for this image, serve the original
+                        ? getOriginalProfileImageAsync(customerId, key)
+                        : CompletableFuture.failedFuture(e));
+    }
+
+    private CompletableFuture<ResponseInputStream<GetObjectResponse>> getOriginalProfileImageAsync(Integer customerId,
+                                                                                                   String key) {
+        return s3AsyncService.getObject(s3Buckets.getCustomer(), key)
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(S3AsyncService.isNoSuchKey(e)
+                        ? new ResourceNotFoundException(
+                                "customer with id [%s] profile image not found".formatted(customerId))
+                        : e));
+    }
+
+    /**
+     * Returns a short-lived url to read the image straight from S3, with the same
+     * thumbnail fallback as {@link #getCustomerProfileImage}.
+     */
+    public PresignedUrl presignCustomerProfileImage(Integer customerId, String profileImageId, Integer size) {
+        checkProfileImageSize(size);
+
+        String key = profileImageKey(customerId, profileImageId);
+        if (size != null) {
+            try {
+                s3Service.headObject(s3Buckets.getCustomer(), thumbnailKey(key, size));
+                key = thumbnailKey(key, size);
+            } catch (NoSuchKeyException e) {
+                // no thumbnails for this image, serve the original
+            }
+        }
+        return s3Service.presignGetObject(s3Buckets.getCustomer(), key);
+    }
 
-        byte[] profileImage = s3Service.getObject(
+    private boolean storeProfileImage(Integer customerId,
+                                      String profileImageId,
+                                      long size,
+                                      ProfileImageContent content,
+                                      BooleanSupplier claim) throws IOException {
+        boolean stored = profileImageIndex.acquire(profileImageId, size);
+        if (!stored) {
+            String key = contentKey(profileImageId);
+            try {
+                try (InputStream original = content.open()) {
+                    s3Service.putObject(
+                            s3Buckets.getCustomer(),
+                            key,
+                            original,
+                            size
+                    );
+                }
+                try (InputStream original = content.open()) {
+                    storeThumbnails(key, original);
+                }
+            } catch (IOException | RuntimeException e) {
+                profileImageIndex.release(profileImageId);
+                throw e;
+            }
+        }
+        return useProfileImage(customerId, profileImageId, size, stored, claim);
+    }
+
+    // the reference taken by acquire is committed on its own, so the collector keeps the
+    // object while it is written. Pointing the customer to it is then one short
+    // transaction, opened by the claim, and when either fails the reference is given back
+    private boolean useProfileImage(Integer customerId,
+                                    String profileImageId,
+                                    long size,
+                                    boolean stored,
+                                    BooleanSupplier claim) {
+        boolean used;
+        try {
+            used = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!claim.getAsBoolean()) {
+                    return false;
+                }
+                if (!stored) {
+                    profileImageIndex.markStored(profileImageId, size);
+                }
+                setProfileImage(customerId, profileImageId);
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            profileImageIndex.release(profileImageId);
+            throw e;
+        }
+        if (!used) {
+            profileImageIndex.release(profileImageId);
+        }
+        return used;
+    }
+
+    // the image is read once for the original and once for its thumbnails
+    private interface ProfileImageContent {
+        InputStream open() throws IOException;
+    }
+
+    // the image the customer no longer uses loses a reference. A customer deleted
+    // meanwhile throws, so the caller gives back the reference on the new image
+    private void setProfileImage(Integer customerId, String profileImageId) {
+        customerDAO.updateCustomerProfileImageId(profileImageId, customerId)
+                .ifPresent(profileImageIndex::release);
+        checkIfCustomerExistsOrThrow(customerId);
+    }
+
+    private void storeThumbnails(String key, InputStream content) throws IOException {
+        profileImageResizer.thumbnails(content).forEach((size, thumbnail) -> s3Service.putObject(
                 s3Buckets.getCustomer(),
-                "profile-images/%s/%s".formatted(customerId, customer.profileImageId())
-        );
-        return profileImage;
+                thumbnailKey(key, size),
+                thumbnail
+        ));
+    }
+
+    private static void checkProfileImageSize(Integer size) {
+        if (size != null && !ProfileImageResizer.THUMBNAIL_SIZES.contains(size)) {
+            throw new RequestValidationException(
+                    "size must be one of %s".formatted(ProfileImageResizer.THUMBNAIL_SIZES));
+        }
+    }
+
+    // ids are generated here, anything but a canonical UUID was not
+    private static boolean isProfileImageId(String profileImageId) {
+        try {
+            return UUID.fromString(profileImageId).toString().equals(profileImageId);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String sha256(InputStream content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DigestInputStream digestContent = new DigestInputStream(content, digest)) {
+            digestContent.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // content hashes are shared between customers, older random ids are not
+    static String profileImageKey(Integer customerId, String profileImageId) {
+        return isContentId(profileImageId)
+                ? contentKey(profileImageId)
+                : "profile-images/%s/%s".formatted(customerId, profileImageId);
+    }
+
+    private static boolean isContentId(String profileImageId) {
+        return profileImageId.length() == 64 && profileImageId.chars().allMatch(HexFormat::isHexDigit);
+    }
+
+    private static String contentKey(String profileImageId) {
+        return "profile-images/sha256/%s".formatted(profileImageId);
+    }
+
+    static String thumbnailKey(String profileImageKey, int size) {
+        return "%s_%s".formatted(profileImageKey, size);
     }
 }
\ No newline at end of file
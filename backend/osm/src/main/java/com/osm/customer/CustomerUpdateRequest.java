@@ -3,6 +3,10 @@ package com.osm.customer;
 public record CustomerUpdateRequest(
         String name,
         String email,
-        Integer age
+        Integer age,
+        Long version
 ) {
+    public CustomerUpdateRequest(String name, String email, Integer age) {
+        this(name, email, age, null);
+    }
 }
@@ -0,0 +1,172 @@
+package com.osm.customer;
+
+import com.osm.s3.S3Buckets;
+import com.osm.s3.S3Service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the profile images nothing references anymore: the previous images of
+ * customers who uploaded a new one, the images of deleted customers, and uploads
+ * that were never confirmed.
+ * <p>
+ * The bucket is scanned one page of {@code page-size} keys at a time, each page
+ * checked against the database with a single query. Objects younger than
+ * {@code min-age} are kept, so uploads in flight are never collected, and deletes
+ * are paced to {@code deletes-per-second}. Reclaimed space is reported as
+ * {@code profile.images.reclaimed.bytes} and {@code profile.images.reclaimed.objects}.
+ */
+@Component
+@ConditionalOnProperty(name = "profile-image.gc.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfileImageCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageCollector.class);
+    private static final String PREFIX = "profile-images/";
+
+    private final S3Service s3Service;
+    private final S3Buckets s3Buckets;
+    private final ProfileImageIndex profileImageIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final Duration minAge;
+    private final int deletesPerSecond;
+    private final Counter reclaimedBytes;
+    private final Counter reclaimedObjects;
+
+    public ProfileImageCollector(S3Service s3Service,
+                                 S3Buckets s3Buckets,
+                                 ProfileImageIndex profileImageIndex,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${profile-image.gc.page-size}") int pageSize,
+                                 @Value("${profile-image.gc.min-age}") Duration minAge,
+                                 @Value("${profile-image.gc.deletes-per-second}") int deletesPerSecond,
+                                 MeterRegistry meterRegistry) {
+        this.s3Service = s3Service;
+        this.s3Buckets = s3Buckets;
+        this.profileImageIndex = profileImageIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+        this.minAge = minAge;
+        this.deletesPerSecond = deletesPerSecond;
+        this.reclaimedBytes = Counter.builder("profile.images.reclaimed.bytes")
+                .description("Size of the unreferenced profile images deleted from S3")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.reclaimedObjects = Counter.builder("profile.images.reclaimed.objects")
+                .description("Unreferenced profile images and thumbnails deleted from S3")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a full scan of the bucket and returns the number of bytes reclaimed.
+     */
+    @Scheduled(
+            initialDelayString = "${profile-image.gc.interval}",
+            fixedDelayString = "${profile-image.gc.interval}"
+    )
+    public long collect() {
+        Instant cutoff = Instant.now().minus(minAge);
+        long reclaimed = 0;
+        String continuationToken = null;
+        do {
+            ListObjectsV2Response page = s3Service.listObjects(
+                    s3Buckets.getCustomer(), PREFIX, continuationToken, pageSize);
+            reclaimed += collect(page.contents(), cutoff);
+            continuationToken = page.nextContinuationToken();
+        } while (continuationToken != null);
+        return reclaimed;
+    }
+
+    private long collect(List<S3Object> objects, Instant cutoff) {
+        // an image and its thumbnails share the id, they go together
+        Map<String, List<S3Object>> objectsById = new HashMap<>();
+        for (S3Object object : objects) {
+            String profileImageId = profileImageId(object.key());
+            if (profileImageId != null && object.lastModified().isBefore(cutoff)) {
+                objectsById.computeIfAbsent(profileImageId, id -> new ArrayList<>()).add(object);
+            }
+        }
+        if (objectsById.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = profileImageIndex.selectReferenced(objectsById.keySet());
+        List<String> candidates = objectsById.keySet().stream()
+                .filter(id -> !referenced.contains(id))
+                .toList();
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        List<S3Object> orphans = new ArrayList<>();
+        long reclaimed = transactionTemplate.execute(status -> {
+            profileImageIndex.removeUnreferenced(candidates)
+                    .forEach(id -> orphans.addAll(objectsById.get(id)));
+            return delete(orphans);
+        });
+        pace(start, orphans.size());
+        return reclaimed;
+    }
+
+    // the index rows are gone either way, objects left behind are retried on the next scan
+    private long delete(List<S3Object> orphans) {
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> sizes = new HashMap<>();
+        orphans.forEach(object -> sizes.put(object.key(), object.size()));
+        List<String> deleted;
+        try {
+            deleted = s3Service.deleteObjects(s3Buckets.getCustomer(), sizes.keySet());
+        } catch (SdkException e) {
+            LOGGER.warn("Failed to delete {} unreferenced profile images", orphans.size(), e);
+            return 0;
+        }
+        long bytes = deleted.stream().mapToLong(sizes::get).sum();
+        reclaimedObjects.increment(deleted.size());
+        reclaimedBytes.increment(bytes);
+        return bytes;
+    }
+
+    private void pace(long start, int deleted) {
+        long budget = TimeUnit.SECONDS.toNanos(deleted) / deletesPerSecond;
+        long remaining = budget - (System.nanoTime() - start);
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // profile-images/<customer id or sha256>/<id>[_<size>]
+    private static String profileImageId(String key) {
+        String[] parts = key.substring(PREFIX.length()).split("/");
+        if (parts.length != 2 || parts[1].isEmpty()) {
+            return null;
+        }
+        int thumbnail = parts[1].indexOf('_');
+        return thumbnail < 0 ? parts[1] : parts[1].substring(0, thumbnail);
+    }
+}
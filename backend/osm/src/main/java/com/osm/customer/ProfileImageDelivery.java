@@ -0,0 +1,16 @@
+package com.osm.customer;
+
+/**
+ * How {@link CustomerControler} delivers profile images.
+ */
+public enum ProfileImageDelivery {
+    /**
+     * Stream the image from S3 through the application.
+     */
+    PROXY,
+    /**
+     * Redirect to a short-lived presigned S3 url, the image bytes never go through
+     * the application.
+     */
+    REDIRECT
+}
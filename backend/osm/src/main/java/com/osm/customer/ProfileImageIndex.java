@@ -0,0 +1,139 @@
+package com.osm.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reference counts of the profile images stored by content hash. An image is
+ * stored in S3 once, whatever the number of customers using it; a count that
+ * drops to zero leaves the row, and the object, to be reclaimed later.
+ */
+@Repository
+public class ProfileImageIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Takes a reference on an image, adding its row when there is none, and returns
+     * whether the image is already stored. When it is not, the caller stores it and
+     * calls {@link #markStored}. Concurrent uploads of the same content each count
+     * as a reference.
+     * <p>
+     * Must commit before the image is stored: the reference is what keeps
+     * {@link ProfileImageCollector} from deleting the object. A row the collector is
+     * removing is waited for, then added again as not stored.
+     */
+    public boolean acquire(String profileImageId, long size) {
+        var sql = """
+                INSERT INTO profile_image(id, size, ref_count, stored)
+                VALUES (?, ?, 1, FALSE)
+                ON CONFLICT (id) DO UPDATE
+                SET ref_count = profile_image.ref_count + 1
+                RETURNING stored
+                """;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, profileImageId, size));
+    }
+
+    /**
+     * Records that the image and its thumbnails are stored, so later uploads of the
+     * same content only {@link #acquire} it.
+     */
+    public void markStored(String profileImageId, long size) {
+        var sql = """
+                UPDATE profile_image
+                SET stored = TRUE, size = ?
+                WHERE id = ?
+                """;
+        jdbcTemplate.update(sql, size, profileImageId);
+    }
+
+    /**
+     * Drops a reference. Ids that are not indexed, such as images stored before
+     * the index existed, are ignored.
+     */
+    public void release(String profileImageId) {
+        var sql = """
+                UPDATE profile_image
+                SET ref_count = ref_count - 1
+                WHERE id = ? AND ref_count > 0
+                """;
+        jdbcTemplate.update(sql, profileImageId);
+    }
+
+    /**
+     * Returns the ids, among {@code profileImageIds}, that some customer uses or
+     * that still hold references.
+     */
+    public Set<String> selectReferenced(Collection<String> profileImageIds) {
+        var sql = """
+                SELECT profile_image_id
+                FROM customer
+                WHERE profile_image_id = ANY(?)
+                UNION
+                SELECT id
+                FROM profile_image
+                WHERE id = ANY(?) AND ref_count > 0
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    Array ids = connection.createArrayOf("varchar", profileImageIds.toArray());
+                    statement.setArray(1, ids);
+                    statement.setArray(2, ids);
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString(1)
+        ));
+    }
+
+    /**
+     * Removes the images, among {@code profileImageIds}, that nothing references
+     * and returns their ids. Must run in the transaction that deletes their objects:
+     * until it commits, uploads of the same content wait instead of reusing an
+     * object that is going away, and then store it again.
+     */
+    public List<String> removeUnreferenced(Collection<String> profileImageIds) {
+        // images stored before the index have no row to lock yet
+        var insert = """
+                INSERT INTO profile_image(id, size, ref_count)
+                SELECT id, 0, 0
+                FROM unnest(?) AS id
+                ON CONFLICT (id) DO NOTHING
+                """;
+        var delete = """
+                DELETE FROM profile_image
+                WHERE id = ANY(?)
+                AND ref_count = 0
+                AND NOT EXISTS(
+                    SELECT 1
+                    FROM customer
+                    WHERE customer.profile_image_id = profile_image.id
+                )
+                RETURNING id
+                """;
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(insert);
+            statement.setArray(1, connection.createArrayOf("varchar", profileImageIds.toArray()));
+            return statement;
+        });
+        return jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(delete);
+                    statement.setArray(1, connection.createArrayOf("varchar", profileImageIds.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString("id")
+        );
+    }
+}
@@ -0,0 +1,170 @@
+package com.osm.customer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Profile image uploads accepted on a node's spool and not yet stored in S3.
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED}, so concurrent workers
+ * never pick the same upload, and a claim only lasts for a lease: an upload
+ * whose worker died is claimed again once the lease is over.
+ * <p>
+ * Each node only claims the uploads it spooled, as the spool is on its local disk;
+ * {@code node} must therefore survive restarts for pending uploads to resume.
+ */
+@Repository
+public class ProfileImageOutbox {
+
+    private static final RowMapper<ProfileImageUploadStatus> STATUS_MAPPER = (rs, rowNum) ->
+            new ProfileImageUploadStatus(
+                    rs.getObject("id", UUID.class),
+                    ProfileImageUploadStatus.Status.valueOf(rs.getString("status")),
+                    rs.getString("profile_image_id"),
+                    rs.getInt("attempts"),
+                    rs.getString("last_error"),
+                    rs.getTimestamp("created_at").toInstant()
+            );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String node;
+
+    public ProfileImageOutbox(JdbcTemplate jdbcTemplate,
+                              @Value("${profile-image.outbox.node:}") String node) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.node = node;
+    }
+
+    public record PendingUpload(UUID id, Integer customerId, String profileImageId, long size, int attempts) {
+    }
+
+    public void insert(UUID uploadId, Integer customerId, String profileImageId, long size) {
+        var sql = """
+                INSERT INTO profile_image_upload(id, customer_id, profile_image_id, size, node)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+        jdbcTemplate.update(sql, uploadId, customerId, profileImageId, size, node);
+    }
+
+    /**
+     * Claims up to {@code limit} uploads of this node that are due, oldest first,
+     * for {@code lease}. Each claim counts as an attempt.
+     */
+    public List<PendingUpload> claim(int limit, Duration lease) {
+        var sql = """
+                UPDATE profile_image_upload
+                SET attempts = attempts + 1,
+                    next_attempt_at = now() + make_interval(secs => ?)
+                WHERE id IN (
+                    SELECT id
+                    FROM profile_image_upload
+                    WHERE node = ?
+                    AND status = 'PENDING'
+                    AND next_attempt_at <= now()
+                    ORDER BY next_attempt_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, customer_id, profile_image_id, size, attempts
+                """;
+        return jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> new PendingUpload(
+                        rs.getObject("id", UUID.class),
+                        rs.getInt("customer_id"),
+                        rs.getString("profile_image_id"),
+                        rs.getLong("size"),
+                        rs.getInt("attempts")
+                ),
+                lease.toSeconds(),
+                node,
+                limit
+        );
+    }
+
+    /**
+     * Marks a claimed upload as stored. Returns {@code false} when it is no longer
+     * pending: another worker completed it, or its customer was deleted.
+     */
+    public boolean markDone(UUID uploadId) {
+        var sql = """
+                UPDATE profile_image_upload
+                SET status = 'DONE', last_error = NULL
+                WHERE id = ? AND status = 'PENDING'
+                """;
+        return jdbcTemplate.update(sql, uploadId) > 0;
+    }
+
+    public void retry(UUID uploadId, Duration delay, String error) {
+        var sql = """
+                UPDATE profile_image_upload
+                SET next_attempt_at = now() + make_interval(secs => ?), last_error = ?
+                WHERE id = ? AND status = 'PENDING'
+                """;
+        jdbcTemplate.update(sql, delay.toSeconds(), error, uploadId);
+    }
+
+    public void markFailed(UUID uploadId, String error) {
+        var sql = """
+                UPDATE profile_image_upload
+                SET status = 'FAILED', last_error = ?
+                WHERE id = ? AND status = 'PENDING'
+                """;
+        jdbcTemplate.update(sql, error, uploadId);
+    }
+
+    /**
+     * Returns the ids, among {@code uploadIds}, of the uploads still pending.
+     */
+    public Set<UUID> selectPending(Collection<UUID> uploadIds) {
+        var sql = """
+                SELECT id
+                FROM profile_image_upload
+                WHERE id = ANY(?) AND status = 'PENDING'
+                """;
+        return new HashSet<>(jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("uuid", uploadIds.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getObject("id", UUID.class)
+        ));
+    }
+
+    /**
+     * Deletes the uploads that are done or failed and were accepted more than
+     * {@code retention} ago, and returns how many were deleted. Their status can
+     * no longer be followed.
+     */
+    public int deleteCompleted(Duration retention) {
+        var sql = """
+                DELETE FROM profile_image_upload
+                WHERE status <> 'PENDING'
+                AND created_at < now() - make_interval(secs => ?)
+                """;
+        return jdbcTemplate.update(sql, retention.toSeconds());
+    }
+
+    public Optional<ProfileImageUploadStatus> selectUpload(Integer customerId, UUID uploadId) {
+        var sql = """
+                SELECT id, status, profile_image_id, attempts, last_error, created_at
+                FROM profile_image_upload
+                WHERE id = ? AND customer_id = ?
+                """;
+        return jdbcTemplate
+                .query(sql, STATUS_MAPPER, uploadId, customerId)
+                .stream()
+                .findFirst();
+    }
+}
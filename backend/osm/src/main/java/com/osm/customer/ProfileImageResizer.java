@@ -0,0 +1,115 @@
+package com.osm.customer;
+
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the fixed-size thumbnails served to list views instead of the original
+ * profile image. Thumbnails fit in a {@code size x size} box, keep the aspect
+ * ratio and are never upscaled.
+ */
+@Service
+public class ProfileImageResizer {
+
+    // largest first, each thumbnail is scaled down from the previous one
+    static final List<Integer> THUMBNAIL_SIZES = List.of(512, 256, 64);
+
+    // refuse to decode anything bigger, a small file can declare huge dimensions
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    /**
+     * Returns the encoded thumbnails by size, or an empty map when the content is
+     * not an image that can be decoded.
+     */
+    public Map<Integer, byte[]> thumbnails(InputStream content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return Map.of();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return Map.of();
+                }
+                BufferedImage image = reader.read(0);
+                Map<Integer, byte[]> thumbnails = new LinkedHashMap<>();
+                for (int size : THUMBNAIL_SIZES) {
+                    image = scaleToFit(image, size);
+                    thumbnails.put(size, encode(image));
+                }
+                return thumbnails;
+            } catch (IIOException e) {
+                // corrupt or unsupported variant of a known format
+                return Map.of();
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage scaleToFit(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= size && height <= size) {
+            return image;
+        }
+        double ratio = Math.min((double) size / width, (double) size / height);
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        // halve step by step, a single bilinear pass over a large ratio drops most pixels
+        BufferedImage scaled = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            scaled = draw(scaled, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return scaled;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(
+                width,
+                height,
+                source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB
+        );
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            // e.g. indexed or grayscale sources that were small enough not to be scaled
+            image = draw(image, image.getWidth(), image.getHeight());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No image writer for " + format);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,151 @@
+package com.osm.customer;
+
+import com.osm.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Local disk holding the profile image uploads the outbox worker has not stored
+ * in S3 yet. It accepts at most {@code max-bytes} at once; past that, uploads are
+ * refused until the worker catches up. The space in use is reported as
+ * {@code profile.images.spool.bytes}.
+ * <p>
+ * Files are fully written and synced under a temporary name, then moved in place,
+ * so a spooled upload is never seen half written. Without {@code spool-dir}, which
+ * is only required with {@code profile-image.upload: outbox}, nothing is spooled.
+ */
+@Component
+public class ProfileImageSpool {
+
+    private final Path root;
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong();
+
+    public ProfileImageSpool(@Value("${profile-image.outbox.spool-dir:}") String root,
+                             @Value("${profile-image.outbox.max-spool-bytes}") long maxBytes,
+                             MeterRegistry meterRegistry) {
+        this.root = StringUtils.isBlank(root) ? null : Paths.get(root);
+        this.maxBytes = maxBytes;
+        // complete files left by a previous run are still waiting for the worker
+        try (Stream<Path> files = this.root != null && Files.isDirectory(this.root)
+                ? Files.list(this.root)
+                : Stream.empty()) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    Files.delete(file);
+                } else {
+                    bytes.addAndGet(Files.size(file));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Gauge.builder("profile.images.spool.bytes", bytes, AtomicLong::get)
+                .description("Size of the profile image uploads waiting to be stored in S3")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes {@code size} bytes of {@code content} to the spool and returns their
+     * SHA-256, which identifies the image.
+     */
+    public String write(UUID uploadId, InputStream content, long size) throws IOException {
+        if (root == null) {
+            throw new IllegalStateException("profile-image.outbox.spool-dir is not set");
+        }
+        if (bytes.addAndGet(size) > maxBytes) {
+            bytes.addAndGet(-size);
+            throw new ServiceUnavailableException("Too many profile images waiting to be stored, try again later");
+        }
+        Path temporary = root.resolve(uploadId + ".tmp");
+        try {
+            Files.createDirectories(root);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (FileChannel file = FileChannel.open(temporary, CREATE_NEW, WRITE);
+                 DigestInputStream digestContent = new DigestInputStream(content, digest)) {
+                digestContent.transferTo(Channels.newOutputStream(file));
+                file.force(true);
+            }
+            Files.move(temporary, file(uploadId), ATOMIC_MOVE);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            bytes.addAndGet(-size);
+            throw new IllegalStateException(e);
+        } catch (IOException | RuntimeException e) {
+            bytes.addAndGet(-size);
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    public InputStream open(UUID uploadId) throws IOException {
+        return Files.newInputStream(file(uploadId));
+    }
+
+    /**
+     * Returns the uploads spooled before {@code cutoff}.
+     */
+    public List<UUID> listUploads(Instant cutoff) throws IOException {
+        if (root == null || !Files.isDirectory(root)) {
+            return List.of();
+        }
+        List<UUID> uploads = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                try {
+                    if (!name.endsWith(".tmp") && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                        uploads.add(UUID.fromString(name));
+                    }
+                } catch (NoSuchFileException | IllegalArgumentException e) {
+                    // deleted meanwhile, or not an upload
+                }
+            }
+        }
+        return uploads;
+    }
+
+    public void delete(UUID uploadId) {
+        Path file = file(uploadId);
+        try {
+            long size = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                bytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    private Path file(UUID uploadId) {
+        return root.resolve(uploadId.toString());
+    }
+}
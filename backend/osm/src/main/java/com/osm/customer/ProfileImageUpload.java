@@ -0,0 +1,10 @@
+package com.osm.customer;
+
+import java.time.Instant;
+
+public record ProfileImageUpload(
+        String profileImageId,
+        String url,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,16 @@
+package com.osm.customer;
+
+/**
+ * When {@link CustomerControler} answers a profile image upload.
+ */
+public enum ProfileImageUploadMode {
+    /**
+     * Once the image is stored in S3 and is the customer's profile image.
+     */
+    DIRECT,
+    /**
+     * With {@code 202 Accepted} once the image is spooled to local disk; a
+     * background worker stores it in S3 and the client polls the upload status.
+     */
+    OUTBOX
+}
@@ -0,0 +1,19 @@
+package com.osm.customer;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ProfileImageUploadStatus(
+        UUID uploadId,
+        Status status,
+        String profileImageId,
+        int attempts,
+        String error,
+        Instant createdAt
+) {
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+}
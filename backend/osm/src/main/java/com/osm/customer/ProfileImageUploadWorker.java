@@ -0,0 +1,157 @@
+package com.osm.customer;
+
+import com.osm.threads.ThreadFactories;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Drains the profile image outbox to S3. Every {@code poll-interval} it claims up
+ * to {@code batch-size} uploads and stores them on a pool of {@code workers}
+ * threads, then polls again right away while there is more to drain.
+ * <p>
+ * A failed upload is retried after {@code retry-delay}, doubled on each attempt,
+ * and given up after {@code max-attempts}; the customer then keeps their previous
+ * image and the status reports the error. An upload missing from the spool fails
+ * right away, retrying cannot bring it back.
+ * <p>
+ * Every {@code cleanup-interval}, uploads done or failed for longer than
+ * {@code retention} are deleted, along with the spooled files no pending upload
+ * refers to anymore, such as those of customers deleted before their upload was
+ * stored.
+ * <p>
+ * Pending uploads only resume from the spool they were written to, by the node that
+ * wrote them, so {@code spool-dir} and {@code node} have no defaults: they must
+ * name a persistent directory and a node id that survive restarts.
+ */
+@Component
+@ConditionalOnProperty(name = "profile-image.upload", havingValue = "outbox")
+public class ProfileImageUploadWorker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageUploadWorker.class);
+
+    // longer than storing any upload takes, or it would be stored twice
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    // a file is spooled right before its upload is recorded
+    private static final Duration ORPHAN_MIN_AGE = Duration.ofMinutes(5);
+
+    private final CustomerService customerService;
+    private final ProfileImageOutbox profileImageOutbox;
+    private final ProfileImageSpool profileImageSpool;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration retention;
+    private final ExecutorService executor;
+
+    public ProfileImageUploadWorker(CustomerService customerService,
+                                    ProfileImageOutbox profileImageOutbox,
+                                    ProfileImageSpool profileImageSpool,
+                                    @Value("${profile-image.outbox.workers}") int workers,
+                                    @Value("${profile-image.outbox.batch-size}") int batchSize,
+                                    @Value("${profile-image.outbox.max-attempts}") int maxAttempts,
+                                    @Value("${profile-image.outbox.retry-delay}") Duration retryDelay,
+                                    @Value("${profile-image.outbox.retention}") Duration retention,
+                                    @Value("${profile-image.outbox.spool-dir:}") String spoolDir,
+                                    @Value("${profile-image.outbox.node:}") String node,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (StringUtils.isAnyBlank(spoolDir, node)) {
+            throw new IllegalStateException(
+                    "profile-image.outbox.spool-dir and profile-image.outbox.node must be set with profile-image.upload: outbox");
+        }
+        this.customerService = customerService;
+        this.profileImageOutbox = profileImageOutbox;
+        this.profileImageSpool = profileImageSpool;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.retention = retention;
+        this.executor = Executors.newFixedThreadPool(workers, ThreadFactories.named("profile-image-upload-", virtualThreads));
+    }
+
+    /**
+     * Stores every upload that is due and returns how many were handled.
+     */
+    @Scheduled(fixedDelayString = "${profile-image.outbox.poll-interval}")
+    public int drain() throws InterruptedException {
+        int handled = 0;
+        List<ProfileImageOutbox.PendingUpload> batch;
+        do {
+            batch = profileImageOutbox.claim(batchSize, LEASE);
+            executor.invokeAll(batch.stream()
+                    .map(upload -> (Callable<Void>) () -> {
+                        store(upload);
+                        return null;
+                    })
+                    .toList());
+            handled += batch.size();
+        } while (batch.size() == batchSize);
+        return handled;
+    }
+
+    private void store(ProfileImageOutbox.PendingUpload upload) {
+        try {
+            if (!customerService.storeSpooledProfileImage(upload)) {
+                LOGGER.debug("Profile image upload {} is no longer pending", upload.id());
+            }
+            profileImageSpool.delete(upload.id());
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof NoSuchFileException) {
+                LOGGER.warn("Profile image upload {} is missing from the spool, giving up", upload.id());
+                profileImageOutbox.markFailed(upload.id(), "Upload is missing from the spool, upload the image again");
+            } else if (upload.attempts() >= maxAttempts) {
+                LOGGER.warn("Giving up on profile image upload {} after {} attempts", upload.id(), upload.attempts(), e);
+                profileImageOutbox.markFailed(upload.id(), String.valueOf(e.getMessage()));
+                profileImageSpool.delete(upload.id());
+            } else {
+                LOGGER.info("Profile image upload {} failed, retrying", upload.id(), e);
+                profileImageOutbox.retry(
+                        upload.id(),
+                        retryDelay.multipliedBy(1L << Math.min(upload.attempts() - 1, 16)),
+                        String.valueOf(e.getMessage())
+                );
+            }
+        }
+    }
+
+    /**
+     * Deletes the completed uploads past retention and the orphaned spool files.
+     */
+    @Scheduled(
+            initialDelayString = "${profile-image.outbox.cleanup-interval}",
+            fixedDelayString = "${profile-image.outbox.cleanup-interval}"
+    )
+    public void cleanUp() throws IOException {
+        int pruned = profileImageOutbox.deleteCompleted(retention);
+        List<UUID> spooled = profileImageSpool.listUploads(Instant.now().minus(ORPHAN_MIN_AGE));
+        Set<UUID> pending = spooled.isEmpty() ? Set.of() : profileImageOutbox.selectPending(spooled);
+        List<UUID> orphans = spooled.stream()
+                .filter(uploadId -> !pending.contains(uploadId))
+                .toList();
+        orphans.forEach(profileImageSpool::delete);
+        if (pruned > 0 || !orphans.isEmpty()) {
+            LOGGER.info("Deleted {} completed profile image uploads and {} orphaned spool files", pruned, orphans.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
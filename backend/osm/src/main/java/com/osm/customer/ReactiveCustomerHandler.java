@@ -0,0 +1,162 @@
+package com.osm.customer;
+
+import com.osm.exception.RequestValidationException;
+import com.osm.jwt.JWTUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * {@link CustomerControler} for the {@code /api/v2} routes, see
+ * {@link ReactiveCustomerRouter}. Handlers only assemble publishers: they run on
+ * the event loop and must never block it.
+ * <p>
+ * Listings are written as they are read, so the page size no longer bounds
+ * memory: {@code afterId} replaces the cursor, the client resumes after the last
+ * id it received. With {@code Accept: application/x-ndjson} each customer is
+ * written on its own line.
+ */
+@Component
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveCustomerHandler {
+
+    private final ReactiveCustomerService customerService;
+    private final JWTUtil jwtUtil;
+
+    public ReactiveCustomerHandler(ReactiveCustomerService customerService, JWTUtil jwtUtil) {
+        this.customerService = customerService;
+        this.jwtUtil = jwtUtil;
+    }
+
+    public Mono<ServerResponse> getCustomers(ServerRequest request) {
+        // validated before the response starts, an error mid-stream can only abort it
+        long afterId = longParam(request, "afterId").orElse(0L);
+        int limit = longParam(request, "limit").orElse((long) CustomerService.DEFAULT_PAGE_SIZE).intValue();
+        if (limit < 1 || limit > CustomerService.MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+        }
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(customerService.getCustomers(afterId, limit), CustomerDTO.class);
+    }
+
+    public Mono<ServerResponse> getCustomer(ServerRequest request) {
+        return customerService.getCustomer(customerId(request))
+                .flatMap(customer -> ServerResponse.ok().bodyValue(customer));
+    }
+
+    public Mono<ServerResponse> registerCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerRegistrationRequest.class)
+                .switchIfEmpty(Mono.error(() -> new RequestValidationException("Registration request is missing")))
+                .flatMap(registration -> customerService.addCustomer(registration)
+                        .then(ServerResponse.ok()
+                                .header(HttpHeaders.AUTHORIZATION, jwtUtil.issueToken(registration.email(), "ROLE_USER"))
+                                .build()));
+    }
+
+    public Mono<ServerResponse> updateCustomer(ServerRequest request) {
+        Integer customerId = customerId(request);
+        return request.bodyToMono(CustomerUpdateRequest.class)
+                .switchIfEmpty(Mono.error(() -> new RequestValidationException("No data changes found !!")))
+                .flatMap(update -> customerService.updateCustomer(customerId, update))
+                .flatMap(customer -> ServerResponse.ok().bodyValue(customer));
+    }
+
+    public Mono<ServerResponse> deleteCustomer(ServerRequest request) {
+        return customerService.deleteCustomerById(customerId(request))
+                .then(ServerResponse.ok().build());
+    }
+
+    /**
+     * Same as {@link CustomerControler#getCustomerProfileImage}, streamed from S3
+     * to the client as it arrives.
+     */
+    public Mono<ServerResponse> getCustomerProfileImage(ServerRequest request) {
+        Integer customerId = customerId(request);
+        Integer size = longParam(request, "size").map(Long::intValue).orElse(null);
+        CacheControl cacheControl = CacheControl.noCache().cachePublic();
+        return customerService.getCustomerProfileImageId(customerId)
+                .flatMap(profileImageId -> {
+                    String eTag = "\"%s\"".formatted(size == null ? profileImageId : profileImageId + "_" + size);
+                    if (CustomerControler.isNotModified(request.headers().asHttpHeaders().getIfNoneMatch(), eTag)) {
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(eTag)
+                                .cacheControl(cacheControl)
+                                .build();
+                    }
+                    return customerService.getCustomerProfileImage(customerId, profileImageId, size)
+                            .flatMap(image -> imageResponse(image, eTag, cacheControl));
+                });
+    }
+
+    // the content type is guessed from the first bytes, so the headers wait for them
+    private static Mono<ServerResponse> imageResponse(ResponsePublisher<GetObjectResponse> image,
+                                                      String eTag,
+                                                      CacheControl cacheControl) {
+        GetObjectResponse object = image.response();
+        return Flux.from(image)
+                .switchOnFirst((first, content) -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok()
+                            .eTag(eTag)
+                            .cacheControl(cacheControl)
+                            .header("X-Content-Type-Options", "nosniff")
+                            .contentType(imageType(first.get(), object.contentType()));
+                    if (object.contentLength() != null) {
+                        response.contentLength(object.contentLength());
+                    }
+                    return response.body(BodyInserters.fromDataBuffers(
+                            content.map(DefaultDataBufferFactory.sharedInstance::wrap)));
+                }, false)
+                // waits for completion, next() would cancel the content still to be written
+                .single();
+    }
+
+    private static MediaType imageType(ByteBuffer head, String storedType) {
+        byte[] bytes = new byte[head == null ? 0 : head.remaining()];
+        if (head != null) {
+            head.duplicate().get(bytes);
+        }
+        try {
+            return CustomerControler.imageType(new ByteArrayInputStream(bytes), storedType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Integer customerId(ServerRequest request) {
+        return longParam(request.pathVariable("customerId"), "customerId").intValue();
+    }
+
+    private static Optional<Long> longParam(ServerRequest request, String name) {
+        return request.queryParam(name).map(value -> longParam(value, name));
+    }
+
+    private static Long longParam(String value, String name) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RequestValidationException("%s must be a number".formatted(name));
+        }
+    }
+}
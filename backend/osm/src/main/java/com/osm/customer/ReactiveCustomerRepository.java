@@ -0,0 +1,208 @@
+package com.osm.customer;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link CustomerJDBCDataAccessService} for the
+ * {@code /api/v2} routes, on R2DBC. Listings are fetched {@link #FETCH_SIZE} rows
+ * at a time as the subscriber requests them, so a slow client slows the query down
+ * instead of piling rows up in memory.
+ */
+@Repository
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveCustomerRepository {
+
+    static final int FETCH_SIZE = 128;
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCustomerRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<Customer> selectCustomersAfterId(long afterId, int limit) {
+        var sql = """
+                SELECT * FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ReactiveCustomerRepository::customer)
+                .all();
+    }
+
+    public Mono<Customer> selectCustomerById(int id) {
+        var sql = """
+                SELECT * FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(ReactiveCustomerRepository::customer)
+                .one();
+    }
+
+    public Mono<Customer> selectCustomerByEmail(String email) {
+        var sql = """
+                SELECT * FROM customer
+                WHERE email = :email
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(ReactiveCustomerRepository::customer)
+                .one();
+    }
+
+    public Mono<Boolean> existsCustomerWithId(int id) {
+        var sql = """
+                SELECT EXISTS(
+                    SELECT 1
+                    FROM customer
+                    WHERE id = :id
+                )
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsCustomerWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS(
+                    SELECT 1
+                    FROM customer
+                    WHERE email = :email
+                )
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Inserts the customer and returns the generated id, or nothing when the email
+     * is already taken.
+     */
+    public Mono<Long> insertCustomer(Customer customer) {
+        var sql = """
+                INSERT INTO customer(name, email, password, age, gender)
+                VALUES (:name, :email, :password, :age, :gender)
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("password", customer.getPassword())
+                .bind("age", customer.getAge())
+                .bind("gender", customer.getGender().toString())
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Same as {@link CustomerJDBCDataAccessService#updateCustomer}: applies the
+     * non-null columns of {@code update}, at its version when it has one, and
+     * returns nothing when the customer is missing or was modified meanwhile.
+     */
+    public Mono<Customer> updateCustomer(Customer update) {
+        List<String> assignments = new ArrayList<>();
+        if (update.getName() != null) {
+            assignments.add("name = :name");
+        }
+        if (update.getAge() != null) {
+            assignments.add("age = :age");
+        }
+        if (update.getEmail() != null) {
+            assignments.add("email = :email");
+        }
+        if (assignments.isEmpty()) {
+            return selectCustomerById(Math.toIntExact(update.getId()));
+        }
+        assignments.add("version = version + 1");
+
+        StringBuilder sql = new StringBuilder("UPDATE customer SET ")
+                .append(String.join(", ", assignments))
+                .append(" WHERE id = :id");
+        if (update.getVersion() != null) {
+            sql.append(" AND version = :version");
+        }
+        sql.append(" RETURNING *");
+
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.toString())
+                .bind("id", update.getId());
+        if (update.getName() != null) {
+            statement = statement.bind("name", update.getName());
+        }
+        if (update.getAge() != null) {
+            statement = statement.bind("age", update.getAge());
+        }
+        if (update.getEmail() != null) {
+            statement = statement.bind("email", update.getEmail());
+        }
+        if (update.getVersion() != null) {
+            statement = statement.bind("version", update.getVersion());
+        }
+        return statement
+                .map(ReactiveCustomerRepository::customer)
+                .one();
+    }
+
+    /**
+     * Deletes the customer and returns the row as it was, or nothing when it did
+     * not exist.
+     */
+    public Mono<Customer> deleteCustomerById(int id) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = :id
+                RETURNING *
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(ReactiveCustomerRepository::customer)
+                .one();
+    }
+
+    /**
+     * Same as {@link ProfileImageIndex#release}.
+     */
+    public Mono<Void> releaseProfileImage(String profileImageId) {
+        var sql = """
+                UPDATE profile_image
+                SET ref_count = ref_count - 1
+                WHERE id = :id AND ref_count > 0
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", profileImageId)
+                .then();
+    }
+
+    private static Customer customer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("password", String.class),
+                row.get("age", Integer.class),
+                Gender.valueOf(row.get("gender", String.class)),
+                row.get("profile_image_id", String.class),
+                row.get("version", Long.class)
+        );
+    }
+}
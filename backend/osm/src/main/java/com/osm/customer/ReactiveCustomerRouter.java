@@ -0,0 +1,41 @@
+package com.osm.customer;
+
+import com.osm.exception.ReactiveExceptionHandler;
+import com.osm.jwt.JWTHandlerFilterFunction;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * The {@code /api/v2/customers} routes. They are functional routes, as annotated
+ * controllers would be picked up by Spring MVC, and they are served by
+ * {@code ReactiveApiServer}, not Tomcat, so {@code SecurityFilterChainConfig} does
+ * not apply: the routes it leaves open are open here too, the others go through
+ * {@link JWTHandlerFilterFunction}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveCustomerRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> customerRoutes(ReactiveCustomerHandler handler,
+                                                         JWTHandlerFilterFunction jwtFilter) {
+        RouterFunction<ServerResponse> open = route()
+                .POST("/api/v2/customers", handler::registerCustomer)
+                .GET("/api/v2/customers/{customerId}/profile-image", handler::getCustomerProfileImage)
+                .build();
+        RouterFunction<ServerResponse> authenticated = route()
+                .GET("/api/v2/customers", handler::getCustomers)
+                .GET("/api/v2/customers/{customerId}", handler::getCustomer)
+                .PUT("/api/v2/customers/{customerId}", handler::updateCustomer)
+                .DELETE("/api/v2/customers/{customerId}", handler::deleteCustomer)
+                .filter(jwtFilter)
+                .build();
+        return open.and(authenticated)
+                .filter(new ReactiveExceptionHandler());
+    }
+}
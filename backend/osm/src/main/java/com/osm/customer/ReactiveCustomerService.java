@@ -0,0 +1,211 @@
+package com.osm.customer;
+
+import com.osm.exception.DuplicateResourceException;
+import com.osm.exception.RequestValidationException;
+import com.osm.exception.ResourceNotFoundException;
+import com.osm.exception.StaleResourceException;
+import com.osm.s3.S3AsyncService;
+import com.osm.s3.S3Buckets;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * {@link CustomerService} for the {@code /api/v2} routes: the same rules, on
+ * {@link ReactiveCustomerRepository} and {@link S3AsyncService}, so no thread
+ * waits for PostgreSQL or S3.
+ * <p>
+ * The caches of {@link CustomerJDBCDataAccessService} are still read by
+ * {@code /api/v1}, so every write evicts the entries it makes stale.
+ */
+@Service
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerRepository customerRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final CustomerDTOMapper customerDTOMapper;
+    private final S3AsyncService s3AsyncService;
+    private final S3Buckets s3Buckets;
+    private final CacheManager cacheManager;
+
+    public ReactiveCustomerService(ReactiveCustomerRepository customerRepository,
+                                   PasswordEncoder passwordEncoder,
+                                   CustomerDTOMapper customerDTOMapper,
+                                   S3AsyncService s3AsyncService,
+                                   S3Buckets s3Buckets,
+                                   CacheManager cacheManager) {
+        this.customerRepository = customerRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.customerDTOMapper = customerDTOMapper;
+        this.s3AsyncService = s3AsyncService;
+        this.s3Buckets = s3Buckets;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Streams up to {@code limit} customers after {@code afterId}, in id order. The
+     * caller checks {@code limit} before it starts writing the response.
+     */
+    public Flux<CustomerDTO> getCustomers(long afterId, int limit) {
+        return customerRepository.selectCustomersAfterId(afterId, limit)
+                .map(customerDTOMapper);
+    }
+
+    public Mono<CustomerDTO> getCustomer(Integer id) {
+        return customerRepository.selectCustomerById(id)
+                .map(customerDTOMapper)
+                .switchIfEmpty(Mono.error(() -> customerNotFound(id)));
+    }
+
+    public Mono<Boolean> existsCustomerWithEmail(String email) {
+        return customerRepository.existsCustomerWithEmail(email);
+    }
+
+    public Mono<Long> addCustomer(CustomerRegistrationRequest request) {
+        // BCrypt is CPU-bound, it must not run on an event loop
+        return Mono.fromCallable(() -> new Customer(
+                        request.name(),
+                        request.email(),
+                        passwordEncoder.encode(request.password()),
+                        request.age(),
+                        request.gender()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(customerRepository::insertCustomer)
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Email already taken")))
+                .doOnSuccess(id -> evictByEmail(request.email()));
+    }
+
+    public Mono<Void> deleteCustomerById(Integer id) {
+        return customerRepository.deleteCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> customerNotFound(id)))
+                .doOnSuccess(deleted -> evict(id))
+                .flatMap(deleted -> deleted.getProfileImageId() == null
+                        ? Mono.empty()
+                        : customerRepository.releaseProfileImage(deleted.getProfileImageId()));
+    }
+
+    /**
+     * Same as {@link CustomerService#updateCustomer}. Without a version, the one
+     * read along with the current values guards the update.
+     */
+    public Mono<CustomerDTO> updateCustomer(Integer customerId, CustomerUpdateRequest updateRequest) {
+        if (updateRequest.version() != null) {
+            if (updateRequest.name() == null && updateRequest.email() == null && updateRequest.age() == null) {
+                return Mono.error(new RequestValidationException("No data changes found !!"));
+            }
+            Customer update = new Customer();
+            update.setId(customerId.longValue());
+            update.setName(updateRequest.name());
+            update.setEmail(updateRequest.email());
+            update.setAge(updateRequest.age());
+            update.setVersion(updateRequest.version());
+            return applyUpdate(customerId, update);
+        }
+        return customerRepository.selectCustomerById(customerId)
+                .switchIfEmpty(Mono.error(() -> customerNotFound(customerId)))
+                .flatMap(customer -> {
+                    Customer update = new Customer();
+                    update.setId(customer.getId());
+                    update.setVersion(customer.getVersion());
+                    if (updateRequest.name() != null && !updateRequest.name().equals(customer.getName())) {
+                        update.setName(updateRequest.name());
+                    }
+                    if (updateRequest.age() != null && !updateRequest.age().equals(customer.getAge())) {
+                        update.setAge(updateRequest.age());
+                    }
+                    if (updateRequest.email() != null && !updateRequest.email().equals(customer.getEmail())) {
+                        update.setEmail(updateRequest.email());
+                    }
+                    if (update.getName() == null && update.getAge() == null && update.getEmail() == null) {
+                        return Mono.error(new RequestValidationException("No data changes found !!"));
+                    }
+                    return applyUpdate(customerId, update);
+                });
+    }
+
+    private Mono<CustomerDTO> applyUpdate(Integer customerId, Customer update) {
+        return customerRepository.updateCustomer(update)
+                .onErrorMap(DuplicateKeyException.class,
+                        e -> new DuplicateResourceException("Email is already taken"))
+                .doOnSuccess(updated -> evict(customerId))
+                .map(customerDTOMapper)
+                .switchIfEmpty(Mono.defer(() -> customerRepository.existsCustomerWithId(customerId)
+                        .flatMap(exists -> Mono.error(exists
+                                ? new StaleResourceException(
+                                        "Customer with id [%s] was modified, expected version [%s]"
+                                                .formatted(customerId, update.getVersion()))
+                                : customerNotFound(customerId)))));
+    }
+
+    public Mono<String> getCustomerProfileImageId(Integer customerId) {
+        return customerRepository.selectCustomerById(customerId)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(
+                        "customer with id [%s] not found".formatted(customerId))))
+                .flatMap(customer -> StringUtils.isBlank(customer.getProfileImageId())
+                        ? Mono.error(profileImageNotFound(customerId))
+                        : Mono.just(customer.getProfileImageId()));
+    }
+
+    /**
+     * Same as {@link CustomerService#getCustomerProfileImageAsync}, except that the
+     * content is streamed from S3 as it arrives instead of being read in memory
+     * first.
+     */
+    public Mono<ResponsePublisher<GetObjectResponse>> getCustomerProfileImage(Integer customerId,
+                                                                              String profileImageId,
+                                                                              Integer size) {
+        if (size != null && !ProfileImageResizer.THUMBNAIL_SIZES.contains(size)) {
+            return Mono.error(new RequestValidationException(
+                    "size must be one of %s".formatted(ProfileImageResizer.THUMBNAIL_SIZES)));
+        }
+        String key = CustomerService.profileImageKey(customerId, profileImageId);
+        Mono<ResponsePublisher<GetObjectResponse>> original = getObject(key)
+                .onErrorMap(S3AsyncService::isNoSuchKey, e -> profileImageNotFound(customerId));
+        if (size == null) {
+            return original;
+        }
+        return getObject(CustomerService.thumbnailKey(key, size))
+                // no thumbnails for this image, serve the original
+                .onErrorResume(S3AsyncService::isNoSuchKey, e -> original);
+    }
+
+    private Mono<ResponsePublisher<GetObjectResponse>> getObject(String key) {
+        return Mono.fromFuture(() -> s3AsyncService.getObjectPublisher(s3Buckets.getCustomer(), key));
+    }
+
+    private void evict(Integer customerId) {
+        cache(CustomerCaches.BY_ID).evict(customerId.longValue());
+        cache(CustomerCaches.BY_EMAIL).clear();
+    }
+
+    private void evictByEmail(String email) {
+        cache(CustomerCaches.BY_EMAIL).evict(email);
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache [%s] is not configured".formatted(name));
+        }
+        return cache;
+    }
+
+    private static ResourceNotFoundException customerNotFound(Integer id) {
+        return new ResourceNotFoundException("Customer with id [%s] not found".formatted(id));
+    }
+
+    private static ResourceNotFoundException profileImageNotFound(Integer customerId) {
+        return new ResourceNotFoundException(
+                "customer with id [%s] profile image not found".formatted(customerId));
+    }
+}
@@ -0,0 +1,24 @@
+package com.osm.customer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveCustomerUserDetailsService implements ReactiveUserDetailsService {
+
+    private final ReactiveCustomerRepository customerRepository;
+
+    public ReactiveCustomerUserDetailsService(ReactiveCustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return customerRepository.selectCustomerByEmail(username)
+                .cast(UserDetails.class);
+    }
+}
@@ -0,0 +1,62 @@
+package com.osm.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link DefaultExceptionHandler} for the functional {@code /api/v2} routes: the
+ * exceptions of this package are answered with their {@link ResponseStatus} and an
+ * {@link ApiError}, anything else with 500.
+ */
+public class ReactiveExceptionHandler implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    @Override
+    @NonNull
+    public Mono<ServerResponse> filter(@NonNull ServerRequest request,
+                                       @NonNull HandlerFunction<ServerResponse> next) {
+        return Mono.defer(() -> next.handle(request))
+                .onErrorResume(e -> handle(request, e));
+    }
+
+    private static Mono<ServerResponse> handle(ServerRequest request, Throwable e) {
+        HttpStatusCode status = status(e);
+        if (status.is5xxServerError()) {
+            LOGGER.error("Request {} {} failed", request.method(), request.path(), e);
+        }
+        ApiError apiError = new ApiError(
+                request.path(),
+                e instanceof ResponseStatusException responseStatus ? responseStatus.getReason() : e.getMessage(),
+                status.value(),
+                LocalDateTime.now()
+        );
+        ServerResponse.BodyBuilder response = ServerResponse.status(status);
+        if (e instanceof ServiceUnavailableException) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.bodyValue(apiError);
+    }
+
+    private static HttpStatusCode status(Throwable e) {
+        if (e instanceof ResponseStatusException responseStatus) {
+            return responseStatus.getStatusCode();
+        }
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        return responseStatus != null ? responseStatus.code() : HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+}
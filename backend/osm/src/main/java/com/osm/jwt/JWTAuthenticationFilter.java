@@ -1,12 +1,16 @@
 package com.osm.jwt;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -21,10 +25,14 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final JWTUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final JWTAuthenticationMode mode;
 
-    public JWTAuthenticationFilter(JWTUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JWTAuthenticationFilter(JWTUtil jwtUtil,
+                                   UserDetailsService userDetailsService,
+                                   @Value("${jwt.authentication.mode:database}") JWTAuthenticationMode mode) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.mode = mode;
     }
 
     @Override
@@ -40,12 +48,13 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = authHeader.substring(7);
-        String subject = jwtUtil.getSubject(jwt);
+        Claims claims = jwtUtil.verify(jwt);
+        String subject = claims.getSubject();
 
         if (subject != null &&
                 SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
-            if (jwtUtil.isTokenValid(jwt, userDetails.getUsername())){
+            UserDetails userDetails = loadUserDetails(claims, subject);
+            if (jwtUtil.isTokenValid(claims, userDetails.getUsername())){
                 UsernamePasswordAuthenticationToken  authenticationToken =
                         new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities()
@@ -59,4 +68,17 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails loadUserDetails(Claims claims, String subject) {
+        if (mode == JWTAuthenticationMode.DATABASE){
+            return userDetailsService.loadUserByUsername(subject);
+        }
+        // the signature already vouches for the claims, no need for a lookup
+        return User.withUsername(subject)
+                .password("")
+                .authorities(jwtUtil.getScopes(claims).stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .toList())
+                .build();
+    }
 }
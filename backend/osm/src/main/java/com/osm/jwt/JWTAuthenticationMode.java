@@ -0,0 +1,19 @@
+package com.osm.jwt;
+
+/**
+ * How {@link JWTAuthenticationFilter} turns a verified token into an authentication.
+ */
+public enum JWTAuthenticationMode {
+    /**
+     * Trust the signed claims: the principal is built from the subject and the
+     * {@code scopes} claim without touching the database. A deleted customer's
+     * token keeps authenticating until it expires, so this mode is opt-in.
+     */
+    STATELESS,
+    /**
+     * Load the customer behind the subject through the {@code UserDetailsService}
+     * on every request, e.g. to reject customers deleted after the token was issued.
+     * This is the default.
+     */
+    DATABASE
+}
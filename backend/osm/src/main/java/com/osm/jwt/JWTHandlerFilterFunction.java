@@ -0,0 +1,80 @@
+package com.osm.jwt;
+
+import com.osm.exception.ApiError;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link JWTAuthenticationFilter} for the functional {@code /api/v2} routes, which
+ * Spring Security does not cover: requests without a valid bearer token are
+ * answered with 403 before reaching the handler.
+ */
+@Component
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class JWTHandlerFilterFunction implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private final JWTUtil jwtUtil;
+    private final ReactiveUserDetailsService userDetailsService;
+    private final JWTAuthenticationMode mode;
+
+    public JWTHandlerFilterFunction(JWTUtil jwtUtil,
+                                    ReactiveUserDetailsService userDetailsService,
+                                    @Value("${jwt.authentication.mode:database}") JWTAuthenticationMode mode) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.mode = mode;
+    }
+
+    @Override
+    @NonNull
+    public Mono<ServerResponse> filter(@NonNull ServerRequest request,
+                                       @NonNull HandlerFunction<ServerResponse> next) {
+        String authHeader = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return forbidden(request, "Full authentication is required to access this resource");
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.verify(authHeader.substring(7));
+        } catch (JwtException e) {
+            return forbidden(request, e.getMessage());
+        }
+        String subject = claims.getSubject();
+        if (subject == null || !jwtUtil.isTokenValid(claims, subject)) {
+            return forbidden(request, "Invalid token");
+        }
+        if (mode == JWTAuthenticationMode.DATABASE) {
+            return userDetailsService.findByUsername(subject)
+                    .hasElement()
+                    .flatMap(found -> found
+                            ? next.handle(request)
+                            : forbidden(request, "Username " + subject + " not found"));
+        }
+        return next.handle(request);
+    }
+
+    private static Mono<ServerResponse> forbidden(ServerRequest request, String message) {
+        ApiError apiError = new ApiError(
+                request.path(),
+                message,
+                HttpStatus.FORBIDDEN.value(),
+                LocalDateTime.now()
+        );
+        return ServerResponse.status(HttpStatus.FORBIDDEN).bodyValue(apiError);
+    }
+}
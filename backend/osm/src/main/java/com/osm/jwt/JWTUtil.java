@@ -2,6 +2,7 @@ package com.osm.jwt;
 
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -21,6 +22,13 @@ public class JWTUtil {
 
     private static final String SECRET_KEY = "azerty_123456789_azerty_123456789_azerty_123456789";
 
+    // both are immutable and thread-safe, build them once instead of per token
+    private final Key signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser jwtParser = Jwts
+            .parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
+
     public String issueToken(String subject){
         return issueToken(subject, Map.of());
 
@@ -50,40 +58,50 @@ public class JWTUtil {
                                 Instant.now().plus(30, DAYS)
                         )
                 )
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
 
         return token;
     }
 
-    public String getSubject(String token){
-        return getClaims(token).getSubject();
-    }
-
-    private Claims getClaims(String token) {
-        Claims claims = Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+    /**
+     * Verifies the signature and expiration of the token in a single parse and
+     * returns its claims, so callers can read everything they need from one result.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     */
+    public Claims verify(String token){
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
-        return claims;
     }
 
-    private Key getSigningKey(){
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    public String getSubject(String token){
+        return verify(token).getSubject();
+    }
+
+    public List<String> getScopes(Claims claims){
+        List<?> scopes = claims.get("scopes", List.class);
+        if (scopes == null){
+            return List.of();
+        }
+        return scopes.stream()
+                .map(String::valueOf)
+                .toList();
     }
 
     public boolean isTokenValid(String jwt, String username) {
-        String subject = getSubject(jwt);
-        return subject.equals(username) && !isTokenExpired(jwt);
+        return isTokenValid(verify(jwt), username);
+    }
 
+    public boolean isTokenValid(Claims claims, String username) {
+        return claims.getSubject().equals(username) && !isTokenExpired(claims);
     }
 
-    private boolean isTokenExpired(String jwt) {
+    private boolean isTokenExpired(Claims claims) {
         Date today = Date.from(
                 Instant.now()
         );
-        return getClaims(jwt).getExpiration().before(today);
+        return claims.getExpiration().before(today);
     }
 }
@@ -0,0 +1,54 @@
+package com.osm.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * R2DBC access to the customer database for the {@code /api/v2} routes, next to
+ * the JDBC one. Unless {@code api.v2.r2dbc.url} says otherwise, it connects to
+ * {@code spring.datasource.url} with the same credentials.
+ * <p>
+ * The pool is deliberately not a bean: Spring Boot skips the JDBC
+ * {@code DataSource} as soon as there is a {@code ConnectionFactory} bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class R2dbcConfig implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public R2dbcConfig(@Value("${api.v2.r2dbc.url:}") String url,
+                       @Value("${spring.datasource.url}") String jdbcUrl,
+                       @Value("${spring.datasource.username}") String username,
+                       @Value("${spring.datasource.password}") String password,
+                       @Value("${api.v2.r2dbc.max-size}") int maxSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions
+                .parse(url.isBlank() ? jdbcUrl.replaceFirst("^jdbc:", "r2dbc:") : url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
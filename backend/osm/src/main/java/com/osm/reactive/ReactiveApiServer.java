@@ -0,0 +1,90 @@
+package com.osm.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.util.List;
+
+/**
+ * Serves the {@link RouterFunction} beans, the {@code /api/v2} routes, on Reactor
+ * Netty next to Tomcat, on {@code api.v2.port}. Requests are handled on
+ * {@code api.v2.event-loop-threads} event loop threads ({@code api-v2-http-*}),
+ * which are never blocked: database and S3 calls only register callbacks.
+ */
+@Component
+@ConditionalOnProperty(name = "api.v2.enabled", havingValue = "true")
+public class ReactiveApiServer implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveApiServer.class);
+
+    private final HttpHandler httpHandler;
+    private final int port;
+    private final int eventLoopThreads;
+    private LoopResources loopResources;
+    private DisposableServer server;
+
+    public ReactiveApiServer(List<RouterFunction<ServerResponse>> routes,
+                             ObjectMapper objectMapper,
+                             CorsConfigurationSource reactiveCorsConfigurationSource,
+                             @Value("${api.v2.port}") int port,
+                             @Value("${api.v2.event-loop-threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int eventLoopThreads) {
+        // the same JSON as Spring MVC, e.g. for dates
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        RouterFunction<ServerResponse> router = routes.stream()
+                .reduce(RouterFunction::and)
+                .orElseThrow();
+        this.httpHandler = WebHttpHandlerBuilder
+                .webHandler(RouterFunctions.toWebHandler(router, strategies))
+                .filter(new CorsWebFilter(reactiveCorsConfigurationSource))
+                .build();
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    @Override
+    public void start() {
+        loopResources = LoopResources.create("api-v2-http", eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loopResources)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        LOGGER.info("Reactive API started on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        server.disposeNow();
+        loopResources.disposeLater().block();
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
@@ -1,7 +1,5 @@
 package com.osm.s3;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
@@ -9,11 +7,49 @@ import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
 
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link S3Client} backed by the local file system, one directory per bucket.
+ * <p>
+ * Writes are streamed to a temporary file that is then atomically moved in place,
+ * so readers never see a partial object. Reads and part concatenation go through
+ * {@link FileChannel}s, which lets the kernel copy the data where it can.
+ */
 public class FakeS3 implements S3Client {
 
     private static final String PATH=System.getProperty("user.home") + "/.osm/s3";
+    private static final String MULTIPART_UPLOADS = ".multipart";
+    private static final String TEMPORARY_FILES = ".tmp";
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private final Path root;
+
+    public FakeS3() {
+        this(PATH);
+    }
+
+    public FakeS3(String root) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+    }
+
     @Override
     public String serviceName() {
         return "fake";
@@ -26,20 +62,14 @@ public class FakeS3 implements S3Client {
 
     @Override
     public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) throws AwsServiceException, SdkClientException, S3Exception {
-        InputStream inputStream = requestBody.contentStreamProvider().newStream();
-        try {
-            byte[] bytes = IOUtils.toByteArray(inputStream);
-            FileUtils.writeByteArrayToFile(
-                    new File(
-                            buildObjectFullPath(
-                                    putObjectRequest.bucket(),
-                                    putObjectRequest.key())
-                    ),
-                    bytes
-            );
-            return PutObjectResponse.builder().build();
+        Path object = objectPath(putObjectRequest.bucket(), putObjectRequest.key());
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            write(object, inputStream);
+            return PutObjectResponse.builder()
+                    .eTag(eTag(Files.readAttributes(object, BasicFileAttributes.class)))
+                    .build();
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -47,19 +77,342 @@ public class FakeS3 implements S3Client {
     public ResponseInputStream<GetObjectResponse>
     getObject(GetObjectRequest getObjectRequest)
             throws AwsServiceException, SdkClientException {
+        Path object = objectPath(getObjectRequest.bucket(), getObjectRequest.key());
+        FileChannel channel;
+        BasicFileAttributes attributes;
+        try {
+            channel = FileChannel.open(object, READ);
+            attributes = Files.readAttributes(object, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw noSuchKey(getObjectRequest.key());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ResponseInputStream<>(
+                GetObjectResponse.builder()
+                        .contentLength(attributes.size())
+                        .lastModified(attributes.lastModifiedTime().toInstant())
+                        .eTag(eTag(attributes))
+                        .build(),
+                Channels.newInputStream(channel)
+        );
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest)
+            throws AwsServiceException, SdkClientException {
+        Path object = objectPath(headObjectRequest.bucket(), headObjectRequest.key());
+        BasicFileAttributes attributes = attributes(object)
+                .orElseThrow(() -> noSuchKey(headObjectRequest.key()));
+        return HeadObjectResponse.builder()
+                .contentLength(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toInstant())
+                .eTag(eTag(attributes))
+                .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest)
+            throws AwsServiceException, SdkClientException {
         try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    buildObjectFullPath(getObjectRequest.bucket(), getObjectRequest.key())
-            );
-            return new ResponseInputStream<>(
-                    GetObjectResponse.builder().build(), fileInputStream
-            );
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+            // like S3, deleting a missing key succeeds
+            Files.deleteIfExists(objectPath(deleteObjectRequest.bucket(), deleteObjectRequest.key()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return DeleteObjectResponse.builder().build();
     }
 
-    private String buildObjectFullPath(String bucketName, String key) {
-        return PATH + "/" + bucketName + "/" + key;
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest)
+            throws AwsServiceException, SdkClientException {
+        List<DeletedObject> deleted = new ArrayList<>();
+        List<S3Error> errors = new ArrayList<>();
+        for (ObjectIdentifier object : deleteObjectsRequest.delete().objects()) {
+            try {
+                Files.deleteIfExists(objectPath(deleteObjectsRequest.bucket(), object.key()));
+                deleted.add(DeletedObject.builder().key(object.key()).build());
+            } catch (IOException | S3Exception e) {
+                errors.add(S3Error.builder()
+                        .key(object.key())
+                        .code("InternalError")
+                        .message(e.getMessage())
+                        .build());
+            }
+        }
+        return DeleteObjectsResponse.builder()
+                .deleted(deleted)
+                .errors(errors)
+                .build();
+    }
+
+    /**
+     * Lists keys in lexicographic order, with {@code prefix}, {@code delimiter},
+     * {@code startAfter} and {@code maxKeys} paging. The continuation token is the
+     * last key returned, which S3 does not promise but clients must not rely on.
+     */
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request)
+            throws AwsServiceException, SdkClientException {
+        String prefix = listObjectsV2Request.prefix() == null ? "" : listObjectsV2Request.prefix();
+        String delimiter = listObjectsV2Request.delimiter();
+        String after = listObjectsV2Request.continuationToken() != null
+                ? listObjectsV2Request.continuationToken()
+                : listObjectsV2Request.startAfter();
+        int maxKeys = listObjectsV2Request.maxKeys() == null ? DEFAULT_MAX_KEYS : listObjectsV2Request.maxKeys();
+
+        Path bucket = bucketPath(listObjectsV2Request.bucket());
+        if (!Files.isDirectory(bucket)) {
+            throw NoSuchBucketException.builder()
+                    .message("The specified bucket does not exist: " + listObjectsV2Request.bucket())
+                    .build();
+        }
+
+        TreeSet<String> keys = new TreeSet<>();
+        try (Stream<Path> files = Files.walk(bucket)) {
+            files.filter(Files::isRegularFile)
+                    .map(file -> bucket.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"))
+                    .filter(key -> key.startsWith(prefix))
+                    .forEach(keys::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<S3Object> contents = new ArrayList<>();
+        List<CommonPrefix> commonPrefixes = new ArrayList<>();
+        String last = null;
+        boolean truncated = false;
+        for (String key : after == null ? keys : keys.tailSet(after, false)) {
+            String commonPrefix = commonPrefix(key, prefix, delimiter);
+            if (commonPrefix != null && commonPrefix.equals(last)) {
+                continue;
+            }
+            if (contents.size() + commonPrefixes.size() == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                commonPrefixes.add(CommonPrefix.builder().prefix(commonPrefix).build());
+                last = commonPrefix;
+            } else {
+                contents.add(s3Object(bucket, key));
+                last = key;
+            }
+        }
+
+        return ListObjectsV2Response.builder()
+                .name(listObjectsV2Request.bucket())
+                .prefix(listObjectsV2Request.prefix())
+                .delimiter(delimiter)
+                .maxKeys(maxKeys)
+                .keyCount(contents.size() + commonPrefixes.size())
+                .contents(contents)
+                .commonPrefixes(commonPrefixes)
+                .continuationToken(listObjectsV2Request.continuationToken())
+                .startAfter(listObjectsV2Request.startAfter())
+                .isTruncated(truncated)
+                // a common prefix is skipped as a whole by continuing after its last possible key
+                .nextContinuationToken(!truncated ? null
+                        : last.equals(commonPrefix(last, prefix, delimiter)) ? last + Character.MAX_VALUE : last)
+                .build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest createMultipartUploadRequest) throws AwsServiceException, SdkClientException {
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(uploadPath(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return CreateMultipartUploadResponse.builder()
+                .bucket(createMultipartUploadRequest.bucket())
+                .key(createMultipartUploadRequest.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest, RequestBody requestBody) throws AwsServiceException, SdkClientException {
+        Path upload = existingUpload(uploadPartRequest.uploadId());
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            write(upload.resolve(String.valueOf(uploadPartRequest.partNumber())), inputStream);
+            return UploadPartResponse.builder()
+                    .eTag(uploadPartRequest.uploadId() + "-" + uploadPartRequest.partNumber())
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest completeMultipartUploadRequest) throws AwsServiceException, SdkClientException {
+        Path upload = existingUpload(completeMultipartUploadRequest.uploadId());
+        Path object = objectPath(completeMultipartUploadRequest.bucket(), completeMultipartUploadRequest.key());
+        try {
+            Path temporary = temporaryFile();
+            try {
+                try (FileChannel target = FileChannel.open(temporary, WRITE)) {
+                    for (CompletedPart part : completeMultipartUploadRequest.multipartUpload().parts()) {
+                        try (FileChannel source = FileChannel.open(upload.resolve(String.valueOf(part.partNumber())), READ)) {
+                            transfer(source, target);
+                        }
+                    }
+                }
+                moveInPlace(temporary, object);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            deleteUpload(upload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return CompleteMultipartUploadResponse.builder()
+                .bucket(completeMultipartUploadRequest.bucket())
+                .key(completeMultipartUploadRequest.key())
+                .build();
+    }
+
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest abortMultipartUploadRequest) throws AwsServiceException, SdkClientException {
+        try {
+            deleteUpload(uploadPath(abortMultipartUploadRequest.uploadId()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    /**
+     * Returns the file holding the object, for callers that can hand it to the
+     * kernel directly, such as a sendfile response.
+     */
+    public Optional<Path> objectFile(String bucketName, String key) {
+        Path object = objectPath(bucketName, key);
+        return Files.isRegularFile(object) ? Optional.of(object) : Optional.empty();
+    }
+
+    private void write(Path target, InputStream content) throws IOException {
+        Path temporary = temporaryFile();
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, WRITE);
+                 ReadableByteChannel source = Channels.newChannel(content)) {
+                long position = 0;
+                long written;
+                while ((written = channel.transferFrom(source, position, Long.MAX_VALUE)) > 0) {
+                    position += written;
+                }
+            }
+            moveInPlace(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path temporaryFile() throws IOException {
+        Path directory = Files.createDirectories(root.resolve(TEMPORARY_FILES));
+        Path temporary = directory.resolve(UUID.randomUUID().toString());
+        FileChannel.open(temporary, CREATE_NEW, WRITE).close();
+        return temporary;
+    }
+
+    private static void moveInPlace(Path temporary, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void transfer(FileChannel source, FileChannel target) throws IOException {
+        long position = 0;
+        long size = source.size();
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    private Path existingUpload(String uploadId) {
+        Path upload = uploadPath(uploadId);
+        if (!Files.isDirectory(upload)) {
+            throw NoSuchUploadException.builder()
+                    .message("No such upload " + uploadId)
+                    .build();
+        }
+        return upload;
+    }
+
+    private static void deleteUpload(Path upload) throws IOException {
+        if (!Files.isDirectory(upload)) {
+            return;
+        }
+        try (Stream<Path> parts = Files.list(upload)) {
+            for (Path part : parts.toList()) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(upload);
+    }
+
+    private S3Object s3Object(Path bucket, String key) {
+        BasicFileAttributes attributes = attributes(bucket.resolve(key))
+                .orElseThrow(() -> noSuchKey(key));
+        return S3Object.builder()
+                .key(key)
+                .size(attributes.size())
+                .lastModified(attributes.lastModifiedTime().toInstant())
+                .eTag(eTag(attributes))
+                .build();
+    }
+
+    private static String commonPrefix(String key, String prefix, String delimiter) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            return null;
+        }
+        int index = key.indexOf(delimiter, prefix.length());
+        return index < 0 ? null : key.substring(0, index + delimiter.length());
+    }
+
+    private static Optional<BasicFileAttributes> attributes(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? Optional.of(attributes) : Optional.empty();
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // not an MD5 like S3, but changes whenever the content is rewritten
+    private static String eTag(BasicFileAttributes attributes) {
+        return "\"%x-%x\"".formatted(attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    static NoSuchKeyException noSuchKey(String key) {
+        return NoSuchKeyException.builder()
+                .message("The specified key does not exist: " + key)
+                .build();
+    }
+
+    private Path bucketPath(String bucketName) {
+        return resolveInside(root, bucketName);
+    }
+
+    private Path objectPath(String bucketName, String key) {
+        return resolveInside(bucketPath(bucketName), key);
+    }
+
+    private Path uploadPath(String uploadId) {
+        return resolveInside(root.resolve(MULTIPART_UPLOADS), uploadId);
+    }
+
+    // keys come from clients, none may point outside of its directory
+    private static Path resolveInside(Path directory, String name) {
+        Path resolved = directory.resolve(name).normalize();
+        if (!resolved.startsWith(directory) || resolved.equals(directory)) {
+            throw S3Exception.builder()
+                    .message("Invalid name: " + name)
+                    .statusCode(400)
+                    .build();
+        }
+        return resolved;
     }
 }
@@ -0,0 +1,135 @@
+package com.osm.s3;
+
+import com.osm.threads.ThreadFactories;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link S3AsyncClient} over {@link FakeS3}. The file system calls run on a small
+ * pool of their own, standing in for the network, so callers see the same
+ * non-blocking contract as with the real client.
+ */
+public class FakeS3Async implements S3AsyncClient {
+
+    private static final int THREADS = 4;
+
+    private final FakeS3 s3;
+    private final ExecutorService executor;
+
+    public FakeS3Async(FakeS3 s3) {
+        this(s3, false);
+    }
+
+    public FakeS3Async(FakeS3 s3, boolean virtualThreads) {
+        this.s3 = s3;
+        this.executor = Executors.newFixedThreadPool(THREADS, ThreadFactories.named("fake-s3-async-", virtualThreads));
+    }
+
+    @Override
+    public String serviceName() {
+        return "fake";
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Writes the body to a temporary file as it arrives, rather than to memory, and
+     * stores the file once the body is complete.
+     */
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest putObjectRequest, AsyncRequestBody requestBody) {
+        Path content;
+        FileChannel channel;
+        try {
+            content = Files.createTempFile("fake-s3-", ".upload");
+            channel = FileChannel.open(content, WRITE);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return requestBody
+                .subscribe(buffer -> {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .whenComplete((done, e) -> close(channel))
+                .thenApplyAsync(done -> s3.putObject(putObjectRequest, RequestBody.fromFile(content)), executor)
+                .whenComplete((response, e) -> delete(content));
+    }
+
+    /**
+     * Answers with the object's metadata, then hands its file to the transformer,
+     * read with non-blocking file I/O as the transformer requests it.
+     */
+    @Override
+    public <ReturnT> CompletableFuture<ReturnT> getObject(GetObjectRequest getObjectRequest,
+                                                          AsyncResponseTransformer<GetObjectResponse, ReturnT> asyncResponseTransformer) {
+        CompletableFuture<ReturnT> result = asyncResponseTransformer.prepare();
+        executor.execute(() -> {
+            try {
+                HeadObjectResponse object = s3.headObject(HeadObjectRequest.builder()
+                        .bucket(getObjectRequest.bucket())
+                        .key(getObjectRequest.key())
+                        .build());
+                Path file = s3.objectFile(getObjectRequest.bucket(), getObjectRequest.key())
+                        .orElseThrow(() -> FakeS3.noSuchKey(getObjectRequest.key()));
+                asyncResponseTransformer.onResponse(GetObjectResponse.builder()
+                        .contentLength(object.contentLength())
+                        .lastModified(object.lastModified())
+                        .eTag(object.eTag())
+                        .build());
+                asyncResponseTransformer.onStream(AsyncRequestBody.fromFile(file));
+            } catch (RuntimeException e) {
+                asyncResponseTransformer.exceptionOccurred(e);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<HeadObjectResponse> headObject(HeadObjectRequest headObjectRequest) {
+        return CompletableFuture.supplyAsync(() -> s3.headObject(headObjectRequest), executor);
+    }
+
+    @Override
+    public CompletableFuture<DeleteObjectResponse> deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        return CompletableFuture.supplyAsync(() -> s3.deleteObject(deleteObjectRequest), executor);
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.osm.s3;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Serves the urls presigned by {@link FakeS3Presigner}, so presigned delivery and
+ * uploads work offline against {@link FakeS3}. Downloads are handed to Tomcat's
+ * sendfile support when the connector offers it, like its default servlet does.
+ */
+@RestController
+@RequestMapping(FakeS3Presigner.PATH)
+@ConditionalOnProperty(name = "aws.s3.mock", havingValue = "true")
+public class FakeS3Controller {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FakeS3 s3;
+    private final FakeS3Presigner presigner;
+
+    public FakeS3Controller(S3Client s3, ObjectPresigner presigner) {
+        // S3Config builds a FakeS3 and a FakeS3Presigner whenever aws.s3.mock is set
+        this.s3 = (FakeS3) s3;
+        this.presigner = (FakeS3Presigner) presigner;
+    }
+
+    @GetMapping("{bucket}")
+    public void getObject(
+            @PathVariable("bucket") String bucket,
+            @RequestParam("key") String key,
+            @RequestParam("expires") long expires,
+            @RequestParam("signature") String signature,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!presigner.isValid(SdkHttpMethod.GET, bucket, key, expires, signature)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        Optional<Path> file = s3.objectFile(bucket, key);
+        if (file.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.get(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(size);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat writes the file straight from the page cache once the request returns
+                request.setAttribute(SENDFILE_FILENAME, file.get().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, size);
+                return;
+            }
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    @PutMapping("{bucket}")
+    public ResponseEntity<Void> putObject(
+            @PathVariable("bucket") String bucket,
+            @RequestParam("key") String key,
+            @RequestParam("expires") long expires,
+            @RequestParam("signature") String signature,
+            HttpServletRequest request) throws IOException {
+        if (!presigner.isValid(SdkHttpMethod.PUT, bucket, key, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (request.getContentLengthLong() < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+        s3.putObject(
+                PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .build(),
+                RequestBody.fromInputStream(request.getInputStream(), request.getContentLengthLong())
+        );
+        return ResponseEntity.ok().build();
+    }
+}
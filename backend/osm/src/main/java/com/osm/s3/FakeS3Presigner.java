@@ -0,0 +1,129 @@
+package com.osm.s3;
+
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Presigns urls to {@link FakeS3Controller}, the local stand-in for the S3 endpoint
+ * while {@link FakeS3} is in use. Urls are signed with a key generated at startup,
+ * so they do not survive a restart.
+ */
+public class FakeS3Presigner implements ObjectPresigner {
+
+    static final String PATH = "/fake-s3";
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final String endpoint;
+    private final byte[] secret = new byte[32];
+
+    public FakeS3Presigner(String endpoint) {
+        this.endpoint = endpoint;
+        new SecureRandom().nextBytes(secret);
+    }
+
+    @Override
+    public PresignedGetObjectRequest presignGetObject(GetObjectPresignRequest getObjectPresignRequest) {
+        Instant expiration = Instant.now().plus(getObjectPresignRequest.signatureDuration());
+        SdkHttpRequest request = presign(
+                SdkHttpMethod.GET,
+                getObjectPresignRequest.getObjectRequest().bucket(),
+                getObjectPresignRequest.getObjectRequest().key(),
+                expiration);
+        return PresignedGetObjectRequest.builder()
+                .expiration(expiration)
+                .isBrowserExecutable(true)
+                .signedHeaders(signedHeaders(request))
+                .httpRequest(request)
+                .build();
+    }
+
+    @Override
+    public PresignedPutObjectRequest presignPutObject(PutObjectPresignRequest putObjectPresignRequest) {
+        Instant expiration = Instant.now().plus(putObjectPresignRequest.signatureDuration());
+        SdkHttpRequest request = presign(
+                SdkHttpMethod.PUT,
+                putObjectPresignRequest.putObjectRequest().bucket(),
+                putObjectPresignRequest.putObjectRequest().key(),
+                expiration);
+        return PresignedPutObjectRequest.builder()
+                .expiration(expiration)
+                .isBrowserExecutable(false)
+                .signedHeaders(signedHeaders(request))
+                .httpRequest(request)
+                .build();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    /**
+     * Checks a url built by this presigner: the signature covers the method, the
+     * object and the expiration, so none of them can be changed.
+     */
+    public boolean isValid(SdkHttpMethod method, String bucketName, String key, long expires, String signature) {
+        if (Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                sign(method, bucketName, key, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII)
+        );
+    }
+
+    private SdkHttpRequest presign(SdkHttpMethod method, String bucketName, String key, Instant expiration) {
+        long expires = expiration.getEpochSecond();
+        UriComponents uri = UriComponentsBuilder.fromHttpUrl(endpoint)
+                .path(PATH + "/" + bucketName)
+                .build();
+        return SdkHttpRequest.builder()
+                .method(method)
+                .protocol(uri.getScheme())
+                .host(uri.getHost())
+                .port(uri.getPort() == -1 ? null : uri.getPort())
+                .encodedPath(uri.getPath())
+                .putRawQueryParameter("key", List.of(key))
+                .putRawQueryParameter("expires", List.of(String.valueOf(expires)))
+                .putRawQueryParameter("signature", List.of(sign(method, bucketName, key, expires)))
+                .build();
+    }
+
+    // like S3, the host is the only header the client must send as is
+    private static Map<String, List<String>> signedHeaders(SdkHttpRequest request) {
+        return Map.of("host", List.of(request.port() == SdkHttpUtils.standardPort(request.protocol())
+                ? request.host()
+                : request.host() + ":" + request.port()));
+    }
+
+    private String sign(SdkHttpMethod method, String bucketName, String key, long expires) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            byte[] signature = mac.doFinal(
+                    String.join("\n", method.name(), bucketName, key, String.valueOf(expires))
+                            .getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.osm.s3;
+
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+/**
+ * The part of {@link S3Presigner} that {@link S3Service} uses: single-request
+ * {@code GET} and {@code PUT} urls. {@link FakeS3Presigner} only has to implement
+ * these, not the multipart requests nothing here presigns.
+ */
+public interface ObjectPresigner extends SdkAutoCloseable {
+
+    PresignedGetObjectRequest presignGetObject(GetObjectPresignRequest getObjectPresignRequest);
+
+    PresignedPutObjectRequest presignPutObject(PutObjectPresignRequest putObjectPresignRequest);
+
+    static ObjectPresigner of(S3Presigner presigner) {
+        return new ObjectPresigner() {
+            @Override
+            public PresignedGetObjectRequest presignGetObject(GetObjectPresignRequest getObjectPresignRequest) {
+                return presigner.presignGetObject(getObjectPresignRequest);
+            }
+
+            @Override
+            public PresignedPutObjectRequest presignPutObject(PutObjectPresignRequest putObjectPresignRequest) {
+                return presigner.presignPutObject(putObjectPresignRequest);
+            }
+
+            @Override
+            public void close() {
+                presigner.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package com.osm.s3;
+
+import java.time.Instant;
+
+public record PresignedUrl(
+        String url,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,98 @@
+package com.osm.s3;
+
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non-blocking counterpart of {@link S3Service}: requests go through
+ * {@link S3AsyncClient} and no thread waits for S3 while they are in flight.
+ * Reads complete once the response headers are in; the body of objects too large
+ * for {@link S3ObjectCache} is then streamed as the caller reads it, so it is
+ * never held in memory as a whole.
+ */
+@Service
+public class S3AsyncService {
+
+    private final S3AsyncClient s3;
+    private final S3ObjectCache objectCache;
+
+    public S3AsyncService(S3AsyncClient s3, S3ObjectCache objectCache) {
+        this.s3 = s3;
+        this.objectCache = objectCache;
+    }
+
+    public CompletableFuture<Void> putObject(String bucketName, String key, byte[] file){
+        return putObject(bucketName, key, AsyncRequestBody.fromBytes(file));
+    }
+
+    /**
+     * Uploads the content of {@code file}, read with non-blocking file I/O.
+     */
+    public CompletableFuture<Void> putObject(String bucketName, String key, Path file){
+        return putObject(bucketName, key, AsyncRequestBody.fromFile(file));
+    }
+
+    /**
+     * Reads the object, from memory when {@link S3ObjectCache} holds it. Reading
+     * the returned stream blocks until S3 delivers the bytes. The future fails with
+     * {@link NoSuchKeyException} when there is none, see {@link #isNoSuchKey}.
+     */
+    public CompletableFuture<ResponseInputStream<GetObjectResponse>> getObject(String bucketName, String key){
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return objectCache.getAsync(bucketName, key,
+                () -> s3.getObject(getObjectRequest, AsyncResponseTransformer.toBlockingInputStream()));
+    }
+
+    /**
+     * Reads the object as a stream of buffers, delivered as S3 sends them and only
+     * as fast as the subscriber requests them. Streams bypass
+     * {@link S3ObjectCache}. The future fails with {@link NoSuchKeyException} when
+     * there is no such object.
+     */
+    public CompletableFuture<ResponsePublisher<GetObjectResponse>> getObjectPublisher(String bucketName, String key){
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return s3.getObject(getObjectRequest, AsyncResponseTransformer.toPublisher());
+    }
+
+    /**
+     * Tells whether a future failed because the object does not exist, whether the
+     * exception was wrapped by a dependent stage or not.
+     */
+    public static boolean isNoSuchKey(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable instanceof NoSuchKeyException;
+    }
+
+    private CompletableFuture<Void> putObject(String bucketName, String key, AsyncRequestBody content){
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        return s3.putObject(objectRequest, content)
+                .thenRun(() -> objectCache.invalidate(bucketName, key));
+    }
+}
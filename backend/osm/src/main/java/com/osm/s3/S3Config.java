@@ -4,7 +4,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Configuration
 public class S3Config {
@@ -14,6 +16,10 @@ public class S3Config {
     @Value("${aws.s3.mock}")
 
     private boolean mock;
+    @Value("${aws.s3.presign.mock-endpoint}")
+    private String mockEndpoint;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
     @Bean
     public S3Client s3Client() {
@@ -25,4 +31,28 @@ public class S3Config {
                 .build();
         return client;
     }
+
+    /**
+     * Non-blocking client for {@link S3AsyncService}, on the Netty http client. The
+     * mock shares the files of the {@link FakeS3} client.
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient(S3Client s3Client) {
+        if (mock){
+            return new FakeS3Async((FakeS3) s3Client, virtualThreads);
+        }
+        return S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .build();
+    }
+
+    @Bean
+    public ObjectPresigner objectPresigner() {
+        if (mock){
+            return new FakeS3Presigner(mockEndpoint);
+        }
+        return ObjectPresigner.of(S3Presigner.builder()
+                .region(Region.of(awsRegion))
+                .build());
+    }
 }
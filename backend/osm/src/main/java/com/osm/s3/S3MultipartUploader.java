@@ -0,0 +1,204 @@
+package com.osm.s3;
+
+import com.osm.threads.ThreadFactories;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads large objects with the S3 multipart API. The content is cut into parts
+ * of {@code part-size} bytes that are sent concurrently on a fixed pool; at most
+ * {@code concurrency * 2} parts are held in memory at once, the reader blocks
+ * until a slot frees up. Any failure aborts the upload so no orphan parts are
+ * left behind in the bucket.
+ */
+@Service
+public class S3MultipartUploader {
+
+    private final S3Client s3;
+    private final long threshold;
+    private final int partSize;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore bufferedParts;
+
+    public S3MultipartUploader(S3Client s3,
+                               @Value("${aws.s3.multipart.threshold}") long threshold,
+                               @Value("${aws.s3.multipart.part-size}") int partSize,
+                               @Value("${aws.s3.multipart.concurrency}") int concurrency,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.s3 = s3;
+        this.threshold = threshold;
+        this.partSize = partSize;
+        this.bufferedParts = new Semaphore(concurrency * 2);
+        // parts waiting in the queue hold a permit, so the queue never overflows
+        this.executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(concurrency * 2),
+                ThreadFactories.named("s3-multipart-", virtualThreads)
+        );
+    }
+
+    public boolean isMultipart(long contentLength) {
+        return contentLength >= threshold;
+    }
+
+    public void upload(String bucketName, String key, InputStream content) {
+        String uploadId = s3.createMultipartUpload(
+                CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build()
+        ).uploadId();
+
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+        // the first part that failed, the parts skipped because of it are not reported
+        AtomicReference<RuntimeException> failedPart = new AtomicReference<>();
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                bufferedParts.acquire();
+                if (failedPart.get() != null) {
+                    // a part already failed, stop reading and surface it below
+                    bufferedParts.release();
+                    break;
+                }
+                byte[] part;
+                try {
+                    part = content.readNBytes(partSize);
+                } catch (IOException e) {
+                    bufferedParts.release();
+                    throw e;
+                }
+                if (part.length == 0 && partNumber > 1) {
+                    bufferedParts.release();
+                    break;
+                }
+                int number = partNumber;
+                parts.add(executor.submit(() -> {
+                    try {
+                        if (failedPart.get() != null) {
+                            throw new CancellationException();
+                        }
+                        return uploadPart(bucketName, key, uploadId, number, part);
+                    } catch (CancellationException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        failedPart.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        bufferedParts.release();
+                    }
+                }));
+                if (part.length < partSize) {
+                    break;
+                }
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (Future<CompletedPart> part : parts) {
+                completedParts.add(part.get());
+            }
+            s3.completeMultipartUpload(
+                    CompleteMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder()
+                                    .parts(completedParts)
+                                    .build())
+                            .build()
+            );
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // parts still queued skip themselves, they must run to give back their permit
+            RuntimeException partFailure = failedPart.getAndUpdate(
+                    failed -> failed == null ? new CancellationException() : failed);
+            Throwable cause = partFailure != null
+                    ? partFailure
+                    : e instanceof ExecutionException ? e.getCause() : e;
+            RuntimeException failure = new RuntimeException(
+                    "failed to upload [%s] in parts".formatted(key),
+                    cause
+            );
+            // S3 only frees the storage of parts that finished before the abort
+            awaitParts(parts);
+            abort(bucketName, key, uploadId, failure);
+            throw failure;
+        }
+    }
+
+    private CompletedPart uploadPart(String bucketName, String key, String uploadId, int partNumber, byte[] part) {
+        String eTag = s3.uploadPart(
+                UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) part.length)
+                        .build(),
+                RequestBody.fromInputStream(new ByteArrayInputStream(part), part.length)
+        ).eTag();
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(eTag)
+                .build();
+    }
+
+    private static void awaitParts(List<Future<CompletedPart>> parts) {
+        for (Future<CompletedPart> part : parts) {
+            try {
+                part.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                // already reported through the first failure
+            }
+        }
+    }
+
+    private void abort(String bucketName, String key, String uploadId, RuntimeException failure) {
+        try {
+            s3.abortMultipartUpload(
+                    AbortMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .build()
+            );
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
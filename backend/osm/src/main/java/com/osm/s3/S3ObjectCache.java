@@ -0,0 +1,206 @@
+package com.osm.s3;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.osm.threads.SingleFlight;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the small objects of some buckets in memory, so hot objects are served
+ * without a round trip to S3. The cache is bounded by the total size of the
+ * objects ({@code max-bytes}), not by their count; objects above
+ * {@code max-object-bytes} or of unknown length are always streamed from S3.
+ * With {@code off-heap} the content is held in direct buffers outside of the
+ * Java heap, released by the garbage collector once evicted.
+ * <p>
+ * Entries are only invalidated by writes made through {@link S3Service}, which is
+ * enough for keys that are never rewritten, such as profile images. Exposed as
+ * the {@code s3Objects} cache metrics ({@code cache.gets}, {@code cache.evictions},
+ * {@code cache.eviction.weight}, ...) and {@code s3.object.cache.size.bytes}.
+ * <p>
+ * Concurrent misses on the same object make a single S3 call, see
+ * {@link SingleFlight}; objects too large to be kept are not shared and each
+ * caller streams its own.
+ */
+@Component
+public class S3ObjectCache {
+
+    private static final String NAME = "s3Objects";
+
+    private final Set<String> buckets;
+    private final int maxObjectBytes;
+    private final boolean offHeap;
+    private final Cache<CacheKey, CachedObject> cache;
+    private final SingleFlight<CacheKey, CachedObject> loads;
+
+    public S3ObjectCache(@Value("${aws.s3.cache.buckets}") Set<String> buckets,
+                         @Value("${aws.s3.cache.max-bytes}") long maxBytes,
+                         @Value("${aws.s3.cache.max-object-bytes}") int maxObjectBytes,
+                         @Value("${aws.s3.cache.off-heap}") boolean offHeap,
+                         MeterRegistry meterRegistry) {
+        this.buckets = buckets;
+        this.maxObjectBytes = maxObjectBytes;
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((CacheKey key, CachedObject object) -> object.content().capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+        Gauge.builder("s3.object.cache.size.bytes", cache, S3ObjectCache::weightedSize)
+                .description("Total size of the objects held in memory")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.loads = new SingleFlight<>(NAME, meterRegistry);
+    }
+
+    /**
+     * Returns the object from memory, or from {@code loader} on a miss. The loaded
+     * object is read fully and kept when it is small enough, otherwise the loader's
+     * stream is returned as is.
+     */
+    public ResponseInputStream<GetObjectResponse> get(String bucketName,
+                                                      String key,
+                                                      Supplier<ResponseInputStream<GetObjectResponse>> loader) {
+        if (!buckets.contains(bucketName)) {
+            return loader.get();
+        }
+        CacheKey cacheKey = new CacheKey(bucketName, key);
+        CachedObject cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached.open();
+        }
+
+        // the stream of an object too large to keep, only for the caller that loaded it
+        AtomicReference<ResponseInputStream<GetObjectResponse>> uncached = new AtomicReference<>();
+        CachedObject loaded = loads.execute(cacheKey, () -> load(cacheKey, loader.get(), uncached));
+        if (uncached.get() != null) {
+            return uncached.get();
+        }
+        return loaded != null ? loaded.open() : loader.get();
+    }
+
+    /**
+     * Same as {@link #get}, for loaders whose future completes once the response
+     * headers are in, such as {@link S3AsyncService}. The length is checked before
+     * the body is read, so only objects small enough to keep are read in memory.
+     */
+    public CompletableFuture<ResponseInputStream<GetObjectResponse>> getAsync(
+            String bucketName,
+            String key,
+            Supplier<CompletableFuture<ResponseInputStream<GetObjectResponse>>> loader) {
+        if (!buckets.contains(bucketName)) {
+            return loader.get();
+        }
+        CacheKey cacheKey = new CacheKey(bucketName, key);
+        CachedObject cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.open());
+        }
+
+        AtomicReference<ResponseInputStream<GetObjectResponse>> uncached = new AtomicReference<>();
+        return loads.executeAsync(cacheKey, () -> loader.get().thenApply(object -> load(cacheKey, object, uncached)))
+                .thenCompose(loaded -> {
+                    if (uncached.get() != null) {
+                        return CompletableFuture.completedFuture(uncached.get());
+                    }
+                    return loaded != null
+                            ? CompletableFuture.completedFuture(loaded.open())
+                            : loader.get();
+                });
+    }
+
+    public void invalidate(String bucketName, String key) {
+        cache.invalidate(new CacheKey(bucketName, key));
+    }
+
+    private CachedObject store(CacheKey cacheKey, GetObjectResponse response, byte[] content) {
+        CachedObject loaded = new CachedObject(response, offHeap
+                ? ByteBuffer.allocateDirect(content.length).put(content).flip()
+                : ByteBuffer.wrap(content));
+        cache.put(cacheKey, loaded);
+        return loaded;
+    }
+
+    private CachedObject load(CacheKey cacheKey,
+                              ResponseInputStream<GetObjectResponse> object,
+                              AtomicReference<ResponseInputStream<GetObjectResponse>> uncached) {
+        Long contentLength = object.response().contentLength();
+        if (contentLength == null || contentLength > maxObjectBytes) {
+            uncached.set(object);
+            return null;
+        }
+        byte[] content;
+        try (object) {
+            content = object.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return store(cacheKey, object.response(), content);
+    }
+
+    private static long weightedSize(Cache<CacheKey, CachedObject> cache) {
+        // recent writes are only weighed once the cache's maintenance has run
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+    }
+
+    private record CacheKey(String bucketName, String key) {
+    }
+
+    private record CachedObject(GetObjectResponse response, ByteBuffer content) {
+
+        ResponseInputStream<GetObjectResponse> open() {
+            // each reader gets its own position over the shared content
+            return new ResponseInputStream<>(response, new ByteBufferInputStream(content.duplicate()));
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
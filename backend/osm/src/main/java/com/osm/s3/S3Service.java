@@ -1,30 +1,83 @@
 package com.osm.s3;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 
 @Service
 public class S3Service {
 
     private final S3Client s3;
+    private final S3MultipartUploader multipartUploader;
+    private final S3ObjectCache objectCache;
+    private final ObjectPresigner presigner;
+    private final Duration presignTtl;
 
-    public S3Service(S3Client s3) {
+    public S3Service(S3Client s3,
+                     S3MultipartUploader multipartUploader,
+                     S3ObjectCache objectCache,
+                     ObjectPresigner presigner,
+                     @Value("${aws.s3.presign.ttl}") Duration presignTtl) {
         this.s3 = s3;
+        this.multipartUploader = multipartUploader;
+        this.objectCache = objectCache;
+        this.presigner = presigner;
+        this.presignTtl = presignTtl;
     }
-    
+
+
     public void putObject(String bucketName, String key, byte[] file){
         PutObjectRequest objectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .build();
         s3.putObject(objectRequest, RequestBody.fromBytes(file));
+        objectCache.invalidate(bucketName, key);
+    }
+
+    /**
+     * Streams {@code contentLength} bytes from {@code content} to the bucket
+     * without loading the object in memory. Large objects go through
+     * {@link S3MultipartUploader}.
+     */
+    public void putObject(String bucketName, String key, InputStream content, long contentLength){
+        if (multipartUploader.isMultipart(contentLength)){
+            multipartUploader.upload(bucketName, key, content);
+            objectCache.invalidate(bucketName, key);
+            return;
+        }
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength(contentLength)
+                .build();
+        s3.putObject(objectRequest, RequestBody.fromInputStream(content, contentLength));
+        objectCache.invalidate(bucketName, key);
     }
 
     public byte[] getObject(String bucketName, String key){
@@ -41,4 +94,97 @@ public class S3Service {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Opens the object for reading, from memory when {@link S3ObjectCache} holds it.
+     * The caller owns the returned stream and must close it, which also releases
+     * the underlying connection.
+     */
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName, String key){
+        GetObjectRequest getobjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return objectCache.get(bucketName, key, () -> s3.getObject(getobjectRequest));
+    }
+
+    /**
+     * Returns the metadata of the object, throws {@link NoSuchKeyException} when
+     * there is none.
+     */
+    public HeadObjectResponse headObject(String bucketName, String key){
+        return s3.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    /**
+     * Returns one page of at most {@code maxKeys} objects whose key starts with
+     * {@code prefix}; pass the previous page's
+     * {@link ListObjectsV2Response#nextContinuationToken()} to get the next one.
+     */
+    public ListObjectsV2Response listObjects(String bucketName, String prefix, String continuationToken, int maxKeys){
+        return s3.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .continuationToken(continuationToken)
+                .maxKeys(maxKeys)
+                .build());
+    }
+
+    /**
+     * Deletes up to 1000 objects with a single request. S3 reports failures per
+     * key, so only the keys actually deleted are returned.
+     */
+    public List<String> deleteObjects(String bucketName, Collection<String> keys){
+        if (keys.isEmpty()){
+            return List.of();
+        }
+        DeleteObjectsResponse response = s3.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(keys.stream()
+                                .map(key -> ObjectIdentifier.builder().key(key).build())
+                                .toList())
+                        .quiet(false)
+                        .build())
+                .build());
+        List<String> deleted = response.deleted().stream()
+                .map(DeletedObject::key)
+                .toList();
+        deleted.forEach(key -> objectCache.invalidate(bucketName, key));
+        return deleted;
+    }
+
+    /**
+     * Builds a url that lets anyone holding it read the object directly from S3
+     * until it expires.
+     */
+    public PresignedUrl presignGetObject(String bucketName, String key){
+        PresignedGetObjectRequest presigned = presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(presignTtl)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .build());
+        return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+    }
+
+    /**
+     * Builds a url that lets anyone holding it write the object directly to S3
+     * with a single {@code PUT} until it expires.
+     */
+    public PresignedUrl presignPutObject(String bucketName, String key){
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(presignTtl)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .build());
+        return new PresignedUrl(presigned.url().toString(), presigned.expiration());
+    }
 }
@@ -1,6 +1,8 @@
 package com.osm.security;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -15,8 +17,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${password-encoder.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int poolSize,
+            @Value("${password-encoder.queue-capacity}") int queueCapacity,
+            MeterRegistry meterRegistry
+    ){
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(),
+                poolSize,
+                queueCapacity,
+                meterRegistry
+        );
     }
 
     @Bean
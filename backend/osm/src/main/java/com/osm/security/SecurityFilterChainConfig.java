@@ -1,6 +1,7 @@
 package com.osm.security;
 
 import com.osm.jwt.JWTAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -8,14 +9,26 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityFilterChainConfig {
+
+    private static final RequestMatcher PROFILE_IMAGES = new OrRequestMatcher(
+            new AntPathRequestMatcher("/api/v1/customers/*/profile-image", HttpMethod.GET.name()),
+            new AntPathRequestMatcher("/api/v1/customers/*/profile-image/*", HttpMethod.GET.name()));
+
     private final AuthenticationProvider authenticationProvider;
     private final JWTAuthenticationFilter jwtAuthenticationFilter;
     private final AuthenticationEntryPoint authenticationEntryPoint;
@@ -30,16 +43,33 @@ public class SecurityFilterChainConfig {
         http
                 .csrf().disable()
                 .cors(Customizer.withDefaults())
+                .headers(headers -> headers
+                        .cacheControl(HeadersConfigurer.CacheControlConfig::disable)
+                        // profile images set their own Cache-Control, possibly after an async dispatch
+                        .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(
+                                new NegatedRequestMatcher(PROFILE_IMAGES),
+                                new CacheControlHeadersWriter())))
                 .authorizeHttpRequests()
+                // the request was authorized before it went async
+                .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                .permitAll()
                 .requestMatchers(HttpMethod.POST,
                         "/api/v1/customers",
                         "api/v1/auth/login")
                 .permitAll()
-                .requestMatchers(HttpMethod.GET, "/api/v1/customers/*/profile-image")
+                .requestMatchers(HttpMethod.GET,
+                        "/api/v1/customers/*/profile-image",
+                        "/api/v1/customers/*/profile-image/*")
+                .permitAll()
+                .requestMatchers("/fake-s3/**")
                 .permitAll()
                 .requestMatchers(HttpMethod.GET, "/ping")
                 .permitAll()
-                .requestMatchers(HttpMethod.GET, "/actuator/**")
+                // metrics stay behind authentication with the rest of the actuator
+                .requestMatchers(HttpMethod.GET,
+                        "/actuator/health",
+                        "/actuator/health/**",
+                        "/actuator/info")
                 .permitAll()
                 .anyRequest()
                 .authenticated()
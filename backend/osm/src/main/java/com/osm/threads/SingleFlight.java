@@ -0,0 +1,108 @@
+package com.osm.threads;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical calls: while a call for a key is in flight, other
+ * callers with the same key wait for it and get its result, or its exception,
+ * instead of making the same call again. Nothing is kept once the call completes,
+ * later callers make a new one.
+ * <p>
+ * The result is shared as is, so it must be safe to hand to several callers;
+ * a stream is not. Counted in {@code single.flight.calls}, tagged with
+ * {@code name} and {@code result}: {@code executed} or {@code collapsed}.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter collapsed;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = counter(name, "executed", meterRegistry);
+        this.collapsed = counter(name, "collapsed", meterRegistry);
+    }
+
+    /**
+     * Returns the result of {@code call}, made by this thread unless a call for
+     * {@code key} is already in flight.
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, own);
+        if (inFlight != null) {
+            collapsed.increment();
+            return join(inFlight);
+        }
+        executed.increment();
+        try {
+            V result = call.get();
+            calls.remove(key, own);
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            calls.remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #execute}, for calls that complete asynchronously.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, own);
+        if (inFlight != null) {
+            collapsed.increment();
+            return inFlight.copy();
+        }
+        executed.increment();
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, e) -> {
+            calls.remove(key, own);
+            if (e != null) {
+                own.completeExceptionally(e);
+            } else {
+                own.complete(value);
+            }
+        });
+        // callers must not be able to complete the shared future
+        return own.copy();
+    }
+
+    private static <V> V join(CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // the leader's own exception, as the leader got it
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("single.flight.calls")
+                .description("Calls made, or collapsed into one already in flight")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
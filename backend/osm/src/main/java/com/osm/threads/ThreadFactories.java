@@ -0,0 +1,22 @@
+package com.osm.threads;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the pools that block on I/O: with
+ * {@code spring.threads.virtual.enabled} their threads are virtual, named the same
+ * way, so the pools keep bounding concurrency without holding platform threads.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+    }
+
+    public static ThreadFactory named(String namePrefix, boolean virtual) {
+        return virtual
+                ? Thread.ofVirtual().name(namePrefix, 1).factory()
+                : new CustomizableThreadFactory(namePrefix);
+    }
+}
@@ -0,0 +1,45 @@
+package com.osm.threads;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs request handling and asynchronous work on virtual threads. Nearly every
+ * request blocks on JDBC or S3; a virtual thread unmounts while it waits, so the
+ * number of requests in flight is no longer capped by {@code server.tomcat.threads.max}
+ * but by the pools behind them: Hikari connections and S3 http connections.
+ * <p>
+ * The property is the one Spring Boot 3.2 reads for the same purpose, so this class
+ * can go once the application is on it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(ThreadFactories.named("tomcat-handler-", true)));
+    }
+
+    /**
+     * Used for {@code @Async} methods and Spring MVC asynchronous requests, in place
+     * of the bounded pool Spring Boot configures.
+     */
+    @Bean(name = {
+            TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME
+    })
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(
+                Executors.newThreadPerTaskExecutor(ThreadFactories.named("task-", true)));
+    }
+}
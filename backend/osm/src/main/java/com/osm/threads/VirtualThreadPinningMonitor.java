@@ -0,0 +1,71 @@
+package com.osm.threads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier, typically
+ * inside a {@code synchronized} block or a native frame. A pinned thread holds a
+ * carrier for as long as it waits, and enough of them starve every other virtual
+ * thread, so each pin longer than {@code pinned-threshold} is timed in
+ * {@code jvm.threads.virtual.pinned} and logged with the frames that caused it.
+ * <p>
+ * The events come from JFR ({@code jdk.VirtualThreadPinned}), streamed in process;
+ * {@code -Djdk.tracePinnedThreads=short} prints the same stacks on stdout.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    private final RecordingStream recording;
+    private final Timer pinned;
+
+    public VirtualThreadPinningMonitor(@Value("${threads.virtual.pinned-threshold}") Duration threshold,
+                                       MeterRegistry meterRegistry) {
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+        this.recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::record);
+        recording.startAsync();
+    }
+
+    private void record(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        LOGGER.warn("Virtual thread pinned for {} ms at\n{}",
+                event.getDuration().toMillis(),
+                event.getStackTrace() == null ? "(no stack trace)" : event.getStackTrace().getFrames().stream()
+                        .limit(LOGGED_FRAMES)
+                        .map(VirtualThreadPinningMonitor::format)
+                        .collect(Collectors.joining("\n")));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return "\t%s.%s:%s".formatted(
+                frame.getMethod().getType().getName(),
+                frame.getMethod().getName(),
+                frame.getLineNumber());
+    }
+
+    @PreDestroy
+    public void close() {
+        recording.close();
+    }
+}
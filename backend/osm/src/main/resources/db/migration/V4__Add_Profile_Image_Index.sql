@@ -0,0 +1,13 @@
+-- profile images are stored once per content, so customers may share one
+ALTER TABLE customer
+DROP CONSTRAINT profile_image_id_unique;
+
+ALTER TABLE customer
+ALTER COLUMN profile_image_id TYPE VARCHAR(64);
+
+CREATE TABLE profile_image(
+    id VARCHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL CHECK (ref_count >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,3 @@
+-- the unique constraint dropped in V4 was also the index used to find references
+CREATE INDEX customer_profile_image_id
+ON customer(profile_image_id);
@@ -0,0 +1,17 @@
+-- uploads accepted on disk and waiting to be stored in S3
+CREATE TABLE profile_image_upload(
+    id UUID PRIMARY KEY,
+    customer_id BIGINT NOT NULL REFERENCES customer(id) ON DELETE CASCADE,
+    profile_image_id VARCHAR(64) NOT NULL,
+    size BIGINT NOT NULL,
+    node VARCHAR(255) NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT now(),
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX profile_image_upload_pending
+ON profile_image_upload(node, next_attempt_at)
+WHERE status = 'PENDING';
@@ -0,0 +1,4 @@
+-- give the email constraint the name the entity declares, so a duplicate email
+-- can be told apart from other constraint violations
+ALTER TABLE customer
+RENAME CONSTRAINT customer_email_key TO customer_email_unique;
@@ -0,0 +1,4 @@
+-- uploads take their reference before writing the image, the row tells whether
+-- the image is there yet
+ALTER TABLE profile_image
+ADD COLUMN stored BOOLEAN NOT NULL DEFAULT TRUE;
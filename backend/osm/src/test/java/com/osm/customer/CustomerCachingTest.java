@@ -0,0 +1,150 @@
+package com.osm.customer;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig
+class CustomerCachingTest {
+
+    @Configuration
+    @EnableCaching
+    static class Config {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CustomerCaches.BY_ID, CustomerCaches.BY_EMAIL);
+        }
+
+        @Bean
+        CustomerRepository customerRepository() {
+            return mock(CustomerRepository.class);
+        }
+
+        @Bean
+        CustomerDAO customerDAO(CustomerRepository customerRepository) {
+            return new CustomerJPADataAccessService(customerRepository, mock(EntityManager.class));
+        }
+    }
+
+    @Autowired
+    private CustomerDAO underTest;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Customer customer = new Customer(
+            1L, "Ali", "ali@mail.com", "azerty.123..", 44, Gender.MALE
+    );
+
+    @BeforeEach
+    void setUp() {
+        reset(customerRepository);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer));
+        when(customerRepository.findCustomerByEmail("ali@mail.com")).thenReturn(Optional.of(customer));
+    }
+
+    @Test
+    void selectCustomersByIdIsServedFromCache() {
+        // When
+        underTest.selectCustomersById(1);
+        Optional<Customer> actual = underTest.selectCustomersById(1);
+
+        // Then
+        assertThat(actual).contains(customer);
+        verify(customerRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void selectUserByEmailIsServedFromCache() {
+        // When
+        underTest.selectUserByEmail("ali@mail.com");
+        Optional<Customer> actual = underTest.selectUserByEmail("ali@mail.com");
+
+        // Then
+        assertThat(actual).contains(customer);
+        verify(customerRepository, times(1)).findCustomerByEmail("ali@mail.com");
+    }
+
+    @Test
+    void missingCustomerIsNotCached() {
+        // Given
+        when(customerRepository.findById(2)).thenReturn(Optional.empty());
+
+        // When
+        underTest.selectCustomersById(2);
+        underTest.selectCustomersById(2);
+
+        // Then
+        verify(customerRepository, times(2)).findById(2);
+    }
+
+    @Test
+    void updateCustomerEvictsCachedEntries() {
+        // Given
+        Customer update = new Customer();
+        update.setId(1L);
+        update.setName("Alex");
+        update.setVersion(0L);
+        when(customerRepository.updateCustomerAtVersion(1L, "Alex", null, null, 0L)).thenReturn(1);
+        underTest.selectCustomersById(1);
+        underTest.selectUserByEmail("ali@mail.com");
+
+        // When
+        underTest.updateCustomer(update);
+        underTest.selectCustomersById(1);
+        underTest.selectUserByEmail("ali@mail.com");
+
+        // Then
+        // before the update, to read the updated row back, and after the eviction
+        verify(customerRepository, times(3)).findById(1);
+        verify(customerRepository, times(2)).findCustomerByEmail("ali@mail.com");
+    }
+
+    @Test
+    void updateCustomerProfileImageIdEvictsCachedEntries() {
+        // Given
+        underTest.selectCustomersById(1);
+        underTest.selectUserByEmail("ali@mail.com");
+
+        // When
+        underTest.updateCustomerProfileImageId("profile-image", 1);
+        underTest.selectCustomersById(1);
+        underTest.selectUserByEmail("ali@mail.com");
+
+        // Then
+        verify(customerRepository, times(2)).findById(1);
+        verify(customerRepository, times(2)).findCustomerByEmail("ali@mail.com");
+    }
+
+    @Test
+    void deleteCustomerByIdEvictsCachedEntries() {
+        // Given
+        underTest.selectCustomersById(1);
+
+        // When
+        underTest.deleteCustomerById(1);
+        underTest.selectCustomersById(1);
+
+        // Then
+        verify(customerRepository, times(2)).findById(1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.osm.customer;
+
+import com.osm.exception.DefaultExceptionHandler;
+import com.osm.exception.RequestValidationException;
+import com.osm.jwt.JWTUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CustomerControlerTest {
+
+    private final CustomerService customerService = mock(CustomerService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        CustomerControler underTest = new CustomerControler(
+                customerService, mock(CustomerExportService.class), mock(CustomerJDBCImportService.class), new JWTUtil(),
+                ProfileImageDelivery.PROXY, false, ProfileImageUploadMode.DIRECT);
+        mockMvc = MockMvcBuilders.standaloneSetup(underTest)
+                .setControllerAdvice(new DefaultExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getCustomersAnswersBadRequestForAnInvalidCursor() throws Exception {
+        // Given
+        when(customerService.getAllCustomers("bad", null))
+                .thenThrow(new RequestValidationException("Invalid cursor [bad]"));
+
+        // When
+        // Then
+        mockMvc.perform(get("/api/v1/customers").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.path").value("/api/v1/customers"))
+                .andExpect(jsonPath("$.message").value("Invalid cursor [bad]"))
+                .andExpect(jsonPath("$.statusCode").value(400));
+    }
+}
@@ -0,0 +1,71 @@
+package com.osm.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerExportServiceTest {
+
+    @Mock
+    private CustomerDAO customerDAO;
+    private CustomerExportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerExportService(
+                customerDAO,
+                new CustomerDTOMapper(),
+                new ObjectMapper()
+        );
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            consumer.accept(new Customer(1L, "lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.FEMALE));
+            consumer.accept(new Customer(2L, "Doe, John", "john@mail.com", "azerty.123..", 30, Gender.MALE, "45454"));
+            return null;
+        }).when(customerDAO).streamAllCustomers(any());
+    }
+
+    @Test
+    void canExportCustomersAsNdjson() throws IOException {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        underTest.exportCustomers(CustomerExportFormat.NDJSON, outputStream);
+
+        // Then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":1,").contains("\"email\":\"lzzy@mail.com\"");
+        assertThat(lines[1]).startsWith("{\"id\":2,").contains("\"profileImageId\":\"45454\"");
+    }
+
+    @Test
+    void canExportCustomersAsCsv() throws IOException {
+        // Given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // When
+        underTest.exportCustomers(CustomerExportFormat.CSV, outputStream);
+
+        // Then
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,name,email,gender,age,roles,username,profile_image_id
+                1,lzzy,lzzy@mail.com,FEMALE,19,ROLE_USER,lzzy@mail.com,
+                2,"Doe, John",john@mail.com,MALE,30,ROLE_USER,john@mail.com,45454
+                """);
+    }
+}
@@ -4,6 +4,7 @@ import com.osm.AbstractTestcontainers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -41,6 +42,55 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(customers).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                    "azerty.123..", 20,
+                    Gender.MALE
+            ));
+        }
+        List<Customer> firstPage = underTest.selectCustomersAfterId(0, 2);
+
+        // When
+        List<Customer> nextPage = underTest.selectCustomersAfterId(
+                firstPage.get(1).getId(), 2);
+
+        // Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+        assertThat(nextPage).isNotEmpty();
+        assertThat(nextPage)
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(firstPage.get(1).getId()));
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.FEMALE
+        ));
+        List<Customer> streamed = new ArrayList<>();
+
+        // When
+        underTest.streamAllCustomers(streamed::add);
+
+        // Then
+        assertThat(streamed)
+                .extracting(Customer::getEmail)
+                .contains(email);
+        assertThat(streamed)
+                .extracting(Customer::getId)
+                .isSorted();
+    }
+
     @Test
     void selectCustomersById() {
         // Given
@@ -90,10 +140,44 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
     @Test
     void insertCustomer() {
         // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.MALE
+        );
+
+        // When
+        Optional<Long> actual = underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(actual).isPresent();
+        assertThat(underTest.selectCustomersById(Math.toIntExact(actual.get())))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void insertCustomerReturnsEmptyWhenEmailTaken() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.MALE
+        ));
 
         // When
+        Optional<Long> actual = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 30,
+                Gender.FEMALE
+        ));
 
         // Then
+        assertThat(actual).isEmpty();
     }
 
     @Test
@@ -117,6 +201,72 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
     }
 
+    @Test
+    void insertCustomersSkipsExistingEmails() {
+        // Given
+        String existingEmail = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        String newEmail = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                existingEmail,
+                "azerty.123..", 25,
+                Gender.MALE
+        ));
+
+        // When
+        int[] actual = underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), existingEmail, "hash_" + UUID.randomUUID(), 30, Gender.MALE),
+                new Customer(FAKER.name().fullName(), newEmail, "hash_" + UUID.randomUUID(), 31, Gender.FEMALE)
+        ));
+
+        // Then
+        assertThat(actual).containsExactly(0, 1);
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        String unknownEmail = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 25,
+                Gender.MALE
+        ));
+
+        // When
+        var actual = underTest.selectExistingEmails(List.of(email, unknownEmail));
+
+        // Then
+        assertThat(actual).containsExactly(email);
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+            ids.add(Math.toIntExact(underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    email,
+                    "azerty.123..", 25,
+                    Gender.MALE
+            )).orElseThrow()));
+        }
+        ids.add(-1);
+
+        // When
+        List<Customer> actual = underTest.selectCustomersByIds(ids);
+
+        // Then
+        assertThat(actual)
+                .extracting(c -> c.getId().intValue())
+                .containsExactlyInAnyOrder(ids.get(0), ids.get(1));
+    }
+
     @Test
     void existsPersonWithEmailReturnsFalseWhenDoesNotExists() {
         // Given
@@ -359,6 +509,60 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         });
     }
 
+    @Test
+    void updateCustomerReturnsUpdatedRowAndBumpsVersion() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.FEMALE
+        ));
+        Customer existing = underTest.selectUserByEmail(email).orElseThrow();
+
+        Customer update = new Customer();
+        update.setId(existing.getId());
+        update.setName("foo");
+        update.setVersion(existing.getVersion());
+
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual).isPresent().hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("foo");
+            assertThat(c.getEmail()).isEqualTo(email);
+            assertThat(c.getVersion()).isEqualTo(existing.getVersion() + 1);
+        });
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyWhenVersionIsStale() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.FEMALE
+        ));
+        Customer existing = underTest.selectUserByEmail(email).orElseThrow();
+
+        Customer update = new Customer();
+        update.setId(existing.getId());
+        update.setName("foo");
+        update.setVersion(existing.getVersion() + 1);
+
+        // When
+        Optional<Customer> actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(underTest.selectUserByEmail(email))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo(existing.getName()));
+    }
+
     @Test
     void willNoUpdatedWhenNothingToUpdate() {
         // Given
@@ -418,12 +622,58 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
 
         // When
-        underTest.updateCustomerProfileImageId("45454", id);
+        Optional<String> previous = underTest.updateCustomerProfileImageId("45454", id);
 
         // Then
+        assertThat(previous).isEmpty();
         Optional<Customer> customerOptional = underTest.selectCustomersById(id);
         assertThat(customerOptional)
                 .isPresent()
                 .hasValueSatisfying(c -> assertThat(c.getProfileImageId()).isEqualTo("45454"));
     }
+
+    @Test
+    void updateCustomerProfileImageIdReturnsPreviousId() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        long id = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.FEMALE
+        )).orElseThrow();
+        underTest.updateCustomerProfileImageId("45454", (int) id);
+
+        // When
+        Optional<String> actual = underTest.updateCustomerProfileImageId("56565", (int) id);
+
+        // Then
+        assertThat(actual).contains("45454");
+    }
+
+    @Test
+    void customersCanShareProfileImage() {
+        // Given
+        String profileImageId = "a".repeat(64);
+        long first = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                "azerty.123..", 20,
+                Gender.FEMALE
+        )).orElseThrow();
+        long second = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                "azerty.123..", 20,
+                Gender.MALE
+        )).orElseThrow();
+        underTest.updateCustomerProfileImageId(profileImageId, (int) first);
+
+        // When
+        underTest.updateCustomerProfileImageId(profileImageId, (int) second);
+
+        // Then
+        assertThat(underTest.selectCustomersById((int) second))
+                .hasValueSatisfying(c -> assertThat(c.getProfileImageId()).isEqualTo(profileImageId));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.osm.customer;
+
+import com.osm.AbstractTestcontainers;
+import com.osm.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerJDBCImportServiceTest extends AbstractTestcontainers {
+
+    private static final String PASSWORD_HASH =
+            "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+
+    private CustomerJDBCImportService underTest;
+    private CustomerJDBCDataAccessService customerDAO;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerJDBCImportService(
+                jdbcTemplate,
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource())
+        );
+        customerDAO = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+    }
+
+    @Test
+    void canImportCsv() {
+        // Given
+        String existingEmail = "existing_" + UUID.randomUUID() + "@mail.com";
+        String newEmail = "new_" + UUID.randomUUID() + "@mail.com";
+        customerDAO.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                existingEmail,
+                PASSWORD_HASH, 25,
+                Gender.MALE
+        ));
+        String csv = """
+                name,email,password,age,gender
+                "Doe, John",%s,%s,30,male
+                Jane,%s,%s,31,FEMALE
+                Plain,plain_%s@mail.com,azerty.123..,32,MALE
+                Ageless,ageless_%s@mail.com,%s,,MALE
+                """.formatted(
+                newEmail, PASSWORD_HASH,
+                existingEmail, PASSWORD_HASH,
+                UUID.randomUUID(),
+                UUID.randomUUID(), PASSWORD_HASH
+        );
+
+        // When
+        CustomerImportResult actual = underTest.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerImportResult(4, 1, 1, 2));
+        assertThat(customerDAO.selectUserByEmail(newEmail)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Doe, John");
+            assertThat(c.getAge()).isEqualTo(30);
+            assertThat(c.getGender()).isEqualTo(Gender.MALE);
+        });
+    }
+
+    @Test
+    void willThrowWhenCsvIsMalformed() {
+        // Given
+        String csv = """
+                name,email,password,age,gender
+                only,three,columns
+                """;
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageStartingWith("Malformed customer CSV");
+    }
+}
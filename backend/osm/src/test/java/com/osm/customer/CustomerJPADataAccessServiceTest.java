@@ -1,18 +1,28 @@
 package com.osm.customer;
 
+import jakarta.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,11 +32,12 @@ class CustomerJPADataAccessServiceTest {
     private CustomerJPADataAccessService underTest;
     private AutoCloseable autoCloseable;
     @Mock private CustomerRepository customerRepository;
+    @Mock private EntityManager entityManager;
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJPADataAccessService(customerRepository);
+        underTest = new CustomerJPADataAccessService(customerRepository, entityManager);
     }
 
     @AfterEach
@@ -50,6 +61,57 @@ class CustomerJPADataAccessServiceTest {
         assertThat(pageArgumentCaptor.getValue()).isEqualTo(Pageable.ofSize(100));
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        // Given
+        long afterId = 10;
+        int limit = 50;
+
+        // When
+        underTest.selectCustomersAfterId(afterId, limit);
+
+        // Then
+        verify(customerRepository)
+                .findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        // Given
+        List<Integer> ids = List.of(3, 1);
+
+        // When
+        underTest.selectCustomersByIds(ids);
+
+        // Then
+        verify(customerRepository).findAllById(ids);
+    }
+
+    @Test
+    void streamAllCustomersWalksEveryPage() {
+        // Given
+        List<Customer> firstPage = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            firstPage.add(new Customer(id, "Ali", "ali" + id + "@mail.com", "azerty.123..", 44, Gender.MALE));
+        }
+        List<Customer> lastPage = List.of(
+                new Customer(1001L, "Ali", "ali1001@mail.com", "azerty.123..", 44, Gender.MALE)
+        );
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1000)))
+                .thenReturn(firstPage);
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(1000L, PageRequest.of(0, 1000)))
+                .thenReturn(lastPage);
+        List<Customer> streamed = new ArrayList<>();
+
+        // When
+        underTest.streamAllCustomers(streamed::add);
+
+        // Then
+        assertThat(streamed).hasSize(1001);
+        assertThat(streamed.get(1000).getId()).isEqualTo(1001L);
+        verify(entityManager, times(2)).clear();
+    }
+
     @Test
     void selectCustomersById() {
         // Given
@@ -81,6 +143,80 @@ class CustomerJPADataAccessServiceTest {
                 .save(customer);
     }
 
+    @Test
+    void insertCustomerReturnsEmptyWhenEmailTaken() {
+        // Given
+        Customer customer = new Customer(
+                "Ali",
+                "ali_abdelaziz@mail.com",
+                "azerty.123..", 44,
+                Gender.MALE
+        );
+        when(customerRepository.save(customer))
+                .thenThrow(new DataIntegrityViolationException("duplicate key", new ConstraintViolationException(
+                        "duplicate key", new SQLException(), "customer_email_unique")));
+
+        // When
+        var actual = underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomerRethrowsOtherConstraintViolations() {
+        // Given
+        Customer customer = new Customer(
+                null,
+                "ali_abdelaziz@mail.com",
+                "azerty.123..", 44,
+                Gender.MALE
+        );
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("not-null", new ConstraintViolationException(
+                "not-null", new SQLException(), null));
+        when(customerRepository.save(customer)).thenThrow(notNull);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(customer))
+                .isSameAs(notNull);
+    }
+
+    @Test
+    void insertCustomers() {
+        // Given
+        Customer first = new Customer("Ali", "ali_1@mail.com", "azerty.123..", 44, Gender.MALE);
+        Customer taken = new Customer("Ali", "ali_2@mail.com", "azerty.123..", 45, Gender.MALE);
+        Customer last = new Customer("Ali", "ali_3@mail.com", "azerty.123..", 46, Gender.MALE);
+        when(customerRepository.save(first))
+                .thenReturn(new Customer(1L, "Ali", "ali_1@mail.com", "azerty.123..", 44, Gender.MALE));
+        when(customerRepository.save(taken))
+                .thenThrow(new DataIntegrityViolationException("duplicate key", new ConstraintViolationException(
+                        "duplicate key", new SQLException(), "customer_email_unique")));
+        when(customerRepository.save(last))
+                .thenReturn(new Customer(2L, "Ali", "ali_3@mail.com", "azerty.123..", 46, Gender.MALE));
+
+        // When
+        int[] actual = underTest.insertCustomers(List.of(first, taken, last));
+
+        // Then
+        verify(customerRepository, never()).saveAll(any());
+        assertThat(actual).containsExactly(1, 0, 1);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        List<String> emails = List.of("foooo@mail.com", "baaar@mail.com");
+
+        // When
+        underTest.selectExistingEmails(emails);
+
+        // Then
+        verify(customerRepository)
+                .findExistingEmails(emails);
+    }
+
     @Test
     void existsPersonWithEmail() {
         // Given
@@ -123,21 +259,46 @@ class CustomerJPADataAccessServiceTest {
     @Test
     void updateCustomer() {
         // Given
+        Customer update = new Customer();
+        update.setId(1L);
+        update.setName("Ali");
+        update.setVersion(2L);
         Customer customer = new Customer(
                 1L,
                 "Ali",
                 "ali_abdelaziz2@mail.com",
                 "azerty.123..",
                 45,
-                Gender.FEMALE
+                Gender.FEMALE,
+                null,
+                3L
         );
+        when(customerRepository.updateCustomerAtVersion(1L, "Ali", null, null, 2L)).thenReturn(1);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer));
 
         // When
-        underTest.updateCustomer(customer);
+        var actual = underTest.updateCustomer(update);
 
         // Then
-        verify(customerRepository)
-                .save(customer);
+        verify(customerRepository, never()).save(any());
+        assertThat(actual).contains(customer);
+    }
+
+    @Test
+    void updateCustomerReturnsEmptyAtAStaleVersion() {
+        // Given
+        Customer update = new Customer();
+        update.setId(1L);
+        update.setAge(46);
+        update.setVersion(2L);
+        when(customerRepository.updateCustomerAtVersion(1L, null, null, 46, 2L)).thenReturn(0);
+
+        // When
+        var actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(customerRepository, never()).findById(any());
     }
 
     @Test
@@ -145,12 +306,14 @@ class CustomerJPADataAccessServiceTest {
         // Given
         String profileImageId = "45454";
         Integer customerId = 2;
+        when(customerRepository.findProfileImageIdForUpdate(customerId)).thenReturn(Optional.of("previous"));
         // When
 
-        underTest.updateCustomerProfileImageId(profileImageId, customerId);
+        Optional<String> actual = underTest.updateCustomerProfileImageId(profileImageId, customerId);
 
         // Then
 
         verify(customerRepository).updateProfileImageId(profileImageId, customerId);
+        assertThat(actual).contains("previous");
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.osm.customer;
 
 import com.osm.AbstractTestcontainers;
 import com.osm.TestConfig;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,12 +10,14 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.as;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 @DataJpaTest
@@ -55,6 +58,21 @@ class CustomerRepositoryTest  extends AbstractTestcontainers {
     }
 
 
+    @Test
+    void saveReportsADuplicateEmailOnTheEmailConstraint() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        underTest.saveAndFlush(new Customer("Ali", email, "azerty.123..", 20, Gender.FEMALE));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.saveAndFlush(new Customer("Ali", email, "azerty.123..", 21, Gender.MALE)))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .cause()
+                .isInstanceOfSatisfying(ConstraintViolationException.class, e ->
+                        assertThat(e.getConstraintName()).isEqualTo("customer_email_unique"));
+    }
+
     @Test
     void existsCustomerByEmailFailsWhenEmailIsNotPresent() {
         // Given
@@ -137,4 +155,70 @@ class CustomerRepositoryTest  extends AbstractTestcontainers {
                 .isPresent()
                 .hasValueSatisfying(c -> assertThat(c.getProfileImageId()).isEqualTo("45454"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void findProfileImageIdForUpdate() {
+        // Given
+        Customer customer = new Customer(
+                null,
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                "azerty.123..", 20,
+                Gender.FEMALE,
+                "45454"
+        );
+        int id = Math.toIntExact(underTest.save(customer).getId());
+
+        // When
+        var actual = underTest.findProfileImageIdForUpdate(id);
+
+        // Then
+        assertThat(actual).contains("45454");
+    }
+
+    @Test
+    void updateCustomerAtVersionKeepsTheOtherColumns() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID();
+        Customer customer = underTest.save(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "azerty.123..", 20,
+                Gender.MALE
+        ));
+
+        // When
+        int updated = underTest.updateCustomerAtVersion(customer.getId(), "Ali", null, null, customer.getVersion());
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(underTest.findById(Math.toIntExact(customer.getId())))
+                .hasValueSatisfying(c -> {
+                    assertThat(c.getName()).isEqualTo("Ali");
+                    assertThat(c.getEmail()).isEqualTo(email);
+                    assertThat(c.getAge()).isEqualTo(20);
+                    assertThat(c.getPassword()).isEqualTo("azerty.123..");
+                    assertThat(c.getGender()).isEqualTo(Gender.MALE);
+                    assertThat(c.getVersion()).isEqualTo(customer.getVersion() + 1);
+                });
+    }
+
+    @Test
+    void updateCustomerAtVersionSkipsAStaleVersion() {
+        // Given
+        Customer customer = underTest.save(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                "azerty.123..", 20,
+                Gender.MALE
+        ));
+
+        // When
+        int updated = underTest.updateCustomerAtVersion(customer.getId(), "Ali", null, null, customer.getVersion() + 1);
+
+        // Then
+        assertThat(updated).isZero();
+        assertThat(underTest.findById(Math.toIntExact(customer.getId())))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo(customer.getName()));
+    }
+}
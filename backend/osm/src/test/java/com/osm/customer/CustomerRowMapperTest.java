@@ -25,6 +25,7 @@ class CustomerRowMapperTest {
         when(resultSet.getString("gender")).thenReturn("FEMALE"); // Set the gender value here
         when(resultSet.getString("password")).thenReturn("azerty.123..");
         when(resultSet.getString("profile_image_id")).thenReturn("45454");
+        when(resultSet.getLong("version")).thenReturn(3L);
 
 
 
@@ -44,8 +45,8 @@ class CustomerRowMapperTest {
                 "azerty.123..",
                 19,
                 Gender.FEMALE,
-                "45454"
-
+                "45454",
+                3L
         );
         assertThat(actual).isEqualTo(expected);
     }
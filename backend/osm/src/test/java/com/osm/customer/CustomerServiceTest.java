@@ -3,20 +3,46 @@ package com.osm.customer;
 import com.osm.exception.DuplicateResourceException;
 import com.osm.exception.RequestValidationException;
 import com.osm.exception.ResourceNotFoundException;
+import com.osm.exception.ServiceUnavailableException;
+import com.osm.exception.StaleResourceException;
+import com.osm.s3.PresignedUrl;
+import com.osm.s3.S3AsyncService;
 import com.osm.s3.S3Buckets;
 import com.osm.s3.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -32,7 +58,17 @@ class CustomerServiceTest {
     @Mock
     private S3Service s3Service;
     @Mock
+    private S3AsyncService s3AsyncService;
+    @Mock
     private S3Buckets s3Buckets;
+    @Mock
+    private ProfileImageIndex profileImageIndex;
+    @Mock
+    private ProfileImageSpool profileImageSpool;
+    @Mock
+    private ProfileImageOutbox profileImageOutbox;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     private CustomerService underTest;
     private final CustomerDTOMapper customerDTOMapper = new CustomerDTOMapper();
 
@@ -42,17 +78,122 @@ class CustomerServiceTest {
                 passwordEncoder,
                 customerDTOMapper,
                 s3Service,
-                s3Buckets);
+                s3AsyncService,
+                s3Buckets,
+                new ProfileImageResizer(),
+                profileImageIndex,
+                profileImageSpool,
+                profileImageOutbox,
+                transactionManager,
+                new SimpleMeterRegistry());
     }
 
     @Test
     void getAllCustomers() {
         // When
-        underTest.getAllCustomers();
+        underTest.getAllCustomers(null, null);
 
         // Then
         verify(customerDAO)
-                .selectAllCustomers();
+                .selectCustomersAfterId(0L, CustomerService.DEFAULT_PAGE_SIZE + 1);
+    }
+
+    @Test
+    void getAllCustomersReturnsNextCursorWhenMoreRowsExist() {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(5L, "lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.MALE),
+                new Customer(7L, "zzy", "zzy@mail.com", "azerty.123..", 20, Gender.FEMALE),
+                new Customer(9L, "zy", "zy@mail.com", "azerty.123..", 21, Gender.MALE)
+        );
+        when(customerDAO.selectCustomersAfterId(0L, 3)).thenReturn(customers);
+
+        // When
+        CustomerPage firstPage = underTest.getAllCustomers(null, 2);
+
+        // Then
+        assertThat(firstPage.customers())
+                .extracting(CustomerDTO::id)
+                .containsExactly(5L, 7L);
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        // When
+        underTest.getAllCustomers(firstPage.nextCursor(), 2);
+
+        // Then
+        verify(customerDAO).selectCustomersAfterId(7L, 3);
+    }
+
+    @Test
+    void getAllCustomersReturnsNoCursorOnLastPage() {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer(5L, "lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.MALE)
+        );
+        when(customerDAO.selectCustomersAfterId(0L, 3)).thenReturn(customers);
+
+        // When
+        CustomerPage page = underTest.getAllCustomers(null, 2);
+
+        // Then
+        assertThat(page.customers()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenCursorIsInvalid() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getAllCustomers("not-a-cursor", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid cursor [not-a-cursor]");
+
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void willThrowWhenLimitIsOutOfRange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getAllCustomers(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void getCustomersByIdsKeepsTheRequestOrder() {
+        // Given
+        when(customerDAO.selectCustomersByIds(Set.of(3, 1, 2))).thenReturn(List.of(
+                new Customer(1L, "lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.MALE),
+                new Customer(3L, "zy", "zy@mail.com", "azerty.123..", 21, Gender.MALE)
+        ));
+
+        // When
+        List<CustomerDTO> actual = underTest.getCustomersByIds(List.of(3, 1, 2, 3));
+
+        // Then
+        assertThat(actual)
+                .extracting(CustomerDTO::id)
+                .containsExactly(3L, 1L);
+    }
+
+    @Test
+    void getCustomersByIdsWillThrowWhenThereAreTooManyIds() {
+        // Given
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= CustomerService.MAX_PAGE_SIZE + 1; id++) {
+            ids.add(id);
+        }
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomersByIds(ids))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("ids must hold between 1 and %s ids".formatted(CustomerService.MAX_PAGE_SIZE));
+
+        verifyNoInteractions(customerDAO);
     }
 
     @Test
@@ -98,7 +239,7 @@ class CustomerServiceTest {
     void addCustomer() {
         // Given
         String email = "lzzy@mail.com";
-        when(customerDAO.existsPersonWithEmail(email)).thenReturn(false);
+        when(customerDAO.insertCustomer(any())).thenReturn(Optional.of(1L));
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "lzzy",
@@ -138,7 +279,7 @@ class CustomerServiceTest {
     void willThrowWhenEmailExistsWhileAddCustomer() {
         // Given
         String email = "lzzy@mail.com";
-        when(customerDAO.existsPersonWithEmail(email)).thenReturn(true);
+        when(customerDAO.insertCustomer(any())).thenReturn(Optional.empty());
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "lzzy",
@@ -153,9 +294,104 @@ class CustomerServiceTest {
                 .hasMessage("Email already taken");
 
         // Then
-        verify(customerDAO,never()).insertCustomer(any());
+        verify(customerDAO).insertCustomer(any());
+
+
+    }
+
+    @Test
+    void canRegisterCustomersInBatch() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.MALE),
+                new CustomerRegistrationRequest("taken", "taken@mail.com", "azerty.123..", 20, Gender.FEMALE),
+                new CustomerRegistrationRequest("no age", "noage@mail.com", "azerty.123..", null, Gender.FEMALE),
+                new CustomerRegistrationRequest("lzzy again", "lzzy@mail.com", "azerty.123..", 21, Gender.MALE),
+                new CustomerRegistrationRequest("zzy", "zzy@mail.com", "azerty.123..", 22, Gender.FEMALE)
+        );
+        when(customerDAO.selectExistingEmails(any()))
+                .thenReturn(Set.of("taken@mail.com"));
+        when(passwordEncoder.encode("azerty.123..")).thenReturn("hash");
+        // zzy@mail.com loses a race with a concurrent sign-up
+        when(customerDAO.insertCustomers(any())).thenReturn(new int[]{1, 0});
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(requests);
+
+        // Then
+        assertThat(results).containsExactly(
+                new CustomerRegistrationResult(0, "lzzy@mail.com", true, null),
+                new CustomerRegistrationResult(1, "taken@mail.com", false, "Email already taken"),
+                new CustomerRegistrationResult(2, "noage@mail.com", false, "Age is required"),
+                new CustomerRegistrationResult(3, "lzzy@mail.com", false, "Email already taken"),
+                new CustomerRegistrationResult(4, "zzy@mail.com", false, "Email already taken")
+        );
+
+        ArgumentCaptor<List<Customer>> customersArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).selectExistingEmails(
+                Set.of("lzzy@mail.com", "taken@mail.com", "zzy@mail.com"));
+        verify(customerDAO).insertCustomers(customersArgumentCaptor.capture());
+        assertThat(customersArgumentCaptor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly("lzzy@mail.com", "zzy@mail.com");
+        assertThat(customersArgumentCaptor.getValue())
+                .extracting(Customer::getPassword)
+                .containsOnly("hash");
+    }
+
+    @Test
+    void registerCustomersFailsOnlyTheRowsTheEncoderRejects() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("lzzy", "lzzy@mail.com", "first", 19, Gender.MALE),
+                new CustomerRegistrationRequest("zy", "zy@mail.com", "second", 20, Gender.FEMALE),
+                new CustomerRegistrationRequest("zzy", "zzy@mail.com", "third", 21, Gender.FEMALE)
+        );
+        when(customerDAO.selectExistingEmails(any())).thenReturn(Set.of());
+        when(passwordEncoder.encode(any())).thenAnswer(invocation -> {
+            if ("second".equals(invocation.getArgument(0))) {
+                throw new ServiceUnavailableException("Too many concurrent password checks, try again later");
+            }
+            return "hash";
+        });
+        when(customerDAO.insertCustomers(any())).thenReturn(new int[]{1, 1});
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerCustomers(requests);
+
+        // Then
+        assertThat(results).containsExactly(
+                new CustomerRegistrationResult(0, "lzzy@mail.com", true, null),
+                new CustomerRegistrationResult(1, "zy@mail.com", false,
+                        "Too many concurrent password checks, try again later"),
+                new CustomerRegistrationResult(2, "zzy@mail.com", true, null)
+        );
+
+        ArgumentCaptor<List<Customer>> customersArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).insertCustomers(customersArgumentCaptor.capture());
+        assertThat(customersArgumentCaptor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly("lzzy@mail.com", "zzy@mail.com");
+    }
+
+    @Test
+    void willThrowWhenBatchIsTooLarge() {
+        // Given
+        CustomerRegistrationRequest request =
+                new CustomerRegistrationRequest("lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.MALE);
+        List<CustomerRegistrationRequest> requests =
+                Collections.nCopies(CustomerService.MAX_BATCH_REGISTRATIONS + 1, request);
 
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.registerCustomers(requests))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A batch can register at most %s customers"
+                        .formatted(CustomerService.MAX_BATCH_REGISTRATIONS));
 
+        verifyNoInteractions(customerDAO);
     }
 
     @Test
@@ -163,13 +399,31 @@ class CustomerServiceTest {
         // Given
         int id = 2;
 
-        when(customerDAO.existsPersonWithId(id)).thenReturn(true);
+        when(customerDAO.selectCustomersById(id)).thenReturn(Optional.of(new Customer(
+                (long) id, "lzzy", "lzzy@mail.com", "password", 19, Gender.FEMALE)));
+
+        // When
+        underTest.deleteCustomerById(id);
+
+        // Then
+        verify(customerDAO).deleteCustomerById(id);
+        verifyNoInteractions(profileImageIndex);
+    }
+
+    @Test
+    void deleteCustomerByIdReleasesProfileImage() {
+        // Given
+        int id = 2;
+
+        when(customerDAO.selectCustomersById(id)).thenReturn(Optional.of(new Customer(
+                (long) id, "lzzy", "lzzy@mail.com", "password", 19, Gender.FEMALE, "45454")));
 
         // When
         underTest.deleteCustomerById(id);
 
         // Then
         verify(customerDAO).deleteCustomerById(id);
+        verify(profileImageIndex).release("45454");
     }
 
     @Test
@@ -177,7 +431,7 @@ class CustomerServiceTest {
         // Given
         int id = 2;
 
-        when(customerDAO.existsPersonWithId(id)).thenReturn(false);
+        when(customerDAO.selectCustomersById(id)).thenReturn(Optional.empty());
 
         // When
         assertThatThrownBy(() -> underTest.deleteCustomerById(id))
@@ -212,6 +466,8 @@ class CustomerServiceTest {
 
         when(customerDAO.existsPersonWithEmail(updatedEmail)).thenReturn(false);
 
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(customer));
+
         // When
         underTest.updateCustomer(id, updateRequest);
 
@@ -247,6 +503,8 @@ class CustomerServiceTest {
 
         );
 
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(customer));
+
         // When
         underTest.updateCustomer(id, updateRequest);
 
@@ -258,8 +516,8 @@ class CustomerServiceTest {
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
         assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
     }
 
     @Test
@@ -285,6 +543,8 @@ class CustomerServiceTest {
 
         when(customerDAO.existsPersonWithEmail(updatedEmail)).thenReturn(false);
 
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(customer));
+
         // When
         underTest.updateCustomer(id, updateRequest);
 
@@ -295,9 +555,9 @@ class CustomerServiceTest {
         verify(customerDAO).updateCustomer(customerArgumentCaptor.capture());
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(updatedEmail);
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getAge()).isNull();
     }
 
     @Test
@@ -320,6 +580,8 @@ class CustomerServiceTest {
 
         );
 
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(customer));
+
         // When
         underTest.updateCustomer(id, updateRequest);
 
@@ -330,14 +592,40 @@ class CustomerServiceTest {
         verify(customerDAO).updateCustomer(customerArgumentCaptor.capture());
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(updateRequest.age());
-        assertThat(capturedCustomer.getGender()).isEqualTo(customer.getGender());
+        assertThat(capturedCustomer.getPassword()).isNull();
+        assertThat(capturedCustomer.getGender()).isNull();
     }
 
 
 
+    @Test
+    void updateCustomerOnlySendsChangedColumnsAtTheVersionRead() {
+        // Given
+        int id = 2;
+        Customer customer = new Customer(
+                (long) id, "lzzy", "lzzy@mail.com", "azerty.123..", 19, Gender.FEMALE, null, 3L);
+        when(customerDAO.selectCustomersById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(customer));
+
+        // When
+        underTest.updateCustomer(id, new CustomerUpdateRequest("lzzy", null, 20));
+
+        // Then
+        ArgumentCaptor<Customer> customerArgumentCaptor =
+                ArgumentCaptor.forClass(Customer.class);
+
+        verify(customerDAO).updateCustomer(customerArgumentCaptor.capture());
+        Customer capturedCustomer = customerArgumentCaptor.getValue();
+
+        assertThat(capturedCustomer.getId()).isEqualTo(2L);
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getAge()).isEqualTo(20);
+        assertThat(capturedCustomer.getVersion()).isEqualTo(3L);
+    }
+
     @Test
     void WillThrowWhenTryingToUpdateCustomerEmailWhenAlreadyTake() {
         // Given
@@ -402,6 +690,105 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void canUpdateCustomerAtExpectedVersionWithoutReadingIt() {
+        // Given
+        int id = 2;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(
+                "updatedZZZ",
+                null,
+                null,
+                3L
+        );
+        Customer updated = new Customer(
+                (long) id,
+                "updatedZZZ",
+                "lzzy@mail.com",
+                "azerty.123..", 19,
+                Gender.FEMALE,
+                null,
+                4L
+        );
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.of(updated));
+
+        // When
+        CustomerDTO actual = underTest.updateCustomer(id, updateRequest);
+
+        // Then
+        ArgumentCaptor<Customer> customerArgumentCaptor =
+                ArgumentCaptor.forClass(Customer.class);
+
+        verify(customerDAO).updateCustomer(customerArgumentCaptor.capture());
+        Customer capturedCustomer = customerArgumentCaptor.getValue();
+
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
+        assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
+        assertThat(capturedCustomer.getVersion()).isEqualTo(3L);
+        assertThat(actual.version()).isEqualTo(4L);
+        verify(customerDAO, never()).selectCustomersById(anyInt());
+    }
+
+    @Test
+    void willThrowWhenExpectedVersionIsStale() {
+        // Given
+        int id = 2;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(
+                "updatedZZZ",
+                null,
+                null,
+                3L
+        );
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDAO.existsPersonWithId(id)).thenReturn(true);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(StaleResourceException.class)
+                .hasMessage("Customer with id [%s] was modified, expected version [3]".formatted(id));
+    }
+
+    @Test
+    void willThrowWhenUpdatingMissingCustomerAtExpectedVersion() {
+        // Given
+        int id = 2;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(
+                "updatedZZZ",
+                null,
+                null,
+                3L
+        );
+        when(customerDAO.updateCustomer(any())).thenReturn(Optional.empty());
+        when(customerDAO.existsPersonWithId(id)).thenReturn(false);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id [%s] not found".formatted(id));
+    }
+
+    @Test
+    void willThrowWhenEmailIsTakenAtExpectedVersion() {
+        // Given
+        int id = 2;
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest(
+                null,
+                "zzz@mail.com",
+                null,
+                3L
+        );
+        when(customerDAO.updateCustomer(any())).thenThrow(new DuplicateKeyException("customer_email_key"));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email is already taken");
+    }
+
     @Test
     void canUploadProfileImage() {
         // Given
@@ -432,89 +819,678 @@ class CustomerServiceTest {
                 eq(customerId)
         );
 
+        ArgumentCaptor<InputStream> contentArgumentCaptor =
+                ArgumentCaptor.forClass(InputStream.class);
+        assertThat(profileImageIdArgumentCaptor.getValue()).isEqualTo(sha256(bytes));
         verify(s3Service).putObject(
-                bucket,
-                "profile-images/%s/%s".formatted(customerId, profileImageIdArgumentCaptor.getValue()),
-                bytes
+                eq(bucket),
+                eq("profile-images/sha256/%s".formatted(profileImageIdArgumentCaptor.getValue())),
+                contentArgumentCaptor.capture(),
+                eq((long) bytes.length)
         );
+        assertThat(contentArgumentCaptor.getValue()).hasBinaryContent(bytes);
+        verify(profileImageIndex).markStored(sha256(bytes), bytes.length);
     }
 
     @Test
-    void cannotUploadProfileImageWhenCustomerDoesNotExists() {
+    void reusesProfileImageWithSameContent() {
         // Given
         int customerId = 2;
 
-        when(customerDAO.existsPersonWithId(customerId)).thenReturn(false);
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
 
-        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(customerId, mock(MultipartFile.class)))
-                .isInstanceOf(ResourceNotFoundException.class)
-                .hasMessage("Customer with id ["+customerId+"] not found");
-        //when
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(profileImageIndex.acquire(sha256(bytes), bytes.length)).thenReturn(true);
 
-        verify(customerDAO).existsPersonWithId(customerId);
-        verifyNoMoreInteractions(customerDAO);
-        verifyNoInteractions(s3Buckets);
-        verifyNoInteractions(s3Service);
+        // When
+        underTest.uploadCustomerProfileImage(customerId, multipartFile);
 
+        // Then
+        verify(customerDAO).updateCustomerProfileImageId(sha256(bytes), customerId);
+        verifyNoInteractions(s3Service);
+        verify(profileImageIndex, never()).markStored(anyString(), anyLong());
     }
 
     @Test
-    void cannotUploadProfileImageWhenExceptionIsThrown() throws IOException {
+    void uploadGivesBackTheReferenceWhenTheCustomerIsDeletedMeanwhile() {
         // Given
         int customerId = 2;
 
-        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true, false);
 
         byte[] bytes = "Hello World".getBytes();
-        MultipartFile multipartFile = mock(MultipartFile.class);
-        when(multipartFile.getBytes()).thenThrow(IOException.class);
-
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
 
-        String bucket = "customer-bucket";
-        when(s3Buckets.getCustomer()).thenReturn(bucket);
         // When
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(customerId, multipartFile))
+                .isInstanceOf(ResourceNotFoundException.class);
 
-        assertThatThrownBy(() -> {
-            underTest.uploadCustomerProfileImage(customerId, multipartFile);
-
-        }).isInstanceOf(RuntimeException.class)
-                .hasMessage("failed to upload profile image")
-                .hasRootCauseInstanceOf(IOException.class);
         // Then
-
-        verify(customerDAO, never()).updateCustomerProfileImageId(any(), any());
-
+        InOrder inOrder = inOrder(profileImageIndex, customerDAO, transactionManager);
+        inOrder.verify(profileImageIndex).markStored(sha256(bytes), bytes.length);
+        inOrder.verify(customerDAO).updateCustomerProfileImageId(sha256(bytes), customerId);
+        inOrder.verify(transactionManager).rollback(any());
+        inOrder.verify(profileImageIndex).release(sha256(bytes));
     }
 
     @Test
-    void canDownloadProfileImage() {
+    void uploadTakesTheReferenceBeforeStoringTheImage() {
         // Given
         int customerId = 2;
-        String profileImageId = "45454";
-        Customer customer = new Customer(
-                (long) customerId,
-                "lzzy",
-                "lzzy@mail.com",
-                "azerty.123..",
-                19,
-                Gender.FEMALE,
-                profileImageId
-        );
-        when(customerDAO.selectCustomersById(customerId)).thenReturn(Optional.of(customer));
 
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        doThrow(new RuntimeException("S3 is down"))
+                .when(s3Service).putObject(anyString(), anyString(), any(InputStream.class), anyLong());
 
-        String bucket = "customer-bucket";
-        when(s3Buckets.getCustomer()).thenReturn(bucket);
-        byte[] expectedImage = "image".getBytes();
-        when(s3Service.getObject(
-                bucket,
-                "profile-images/%s/%s".formatted(customerId, profileImageId)
-        )).thenReturn(expectedImage);
         // When
-        byte[] actualImage = underTest.getCustomerProfileImage(customerId);
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(customerId, multipartFile))
+                .hasMessage("S3 is down");
 
         // Then
-        assertThat(actualImage).isEqualTo(expectedImage);
+        InOrder inOrder = inOrder(profileImageIndex, s3Service);
+        inOrder.verify(profileImageIndex).acquire(sha256(bytes), bytes.length);
+        inOrder.verify(s3Service).putObject(anyString(), anyString(), any(InputStream.class), anyLong());
+        inOrder.verify(profileImageIndex).release(sha256(bytes));
+        verify(profileImageIndex, never()).markStored(anyString(), anyLong());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void uploadReleasesPreviousProfileImage() {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(profileImageIndex.acquire(sha256(bytes), bytes.length)).thenReturn(true);
+        when(customerDAO.updateCustomerProfileImageId(sha256(bytes), customerId))
+                .thenReturn(Optional.of("previous"));
+
+        // When
+        underTest.uploadCustomerProfileImage(customerId, multipartFile);
+
+        // Then
+        verify(profileImageIndex).release("previous");
+    }
+
+    @Test
+    void canEnqueueProfileImageUpload() throws IOException {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(profileImageSpool.write(any(UUID.class), any(InputStream.class), eq((long) bytes.length)))
+                .thenReturn(sha256(bytes));
+
+        // When
+        ProfileImageUploadStatus actual = underTest.enqueueCustomerProfileImageUpload(customerId, multipartFile);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(ProfileImageUploadStatus.Status.PENDING);
+        assertThat(actual.profileImageId()).isEqualTo(sha256(bytes));
+        verify(profileImageSpool).write(eq(actual.uploadId()), any(InputStream.class), eq((long) bytes.length));
+        verify(profileImageOutbox).insert(actual.uploadId(), customerId, sha256(bytes), bytes.length);
+        verifyNoInteractions(s3Service);
+        verify(customerDAO, never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void enqueueRemovesSpooledUploadWhenOutboxInsertFails() throws IOException {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", bytes);
+        when(profileImageSpool.write(any(UUID.class), any(InputStream.class), anyLong()))
+                .thenReturn(sha256(bytes));
+        doThrow(new DuplicateKeyException("duplicate"))
+                .when(profileImageOutbox).insert(any(UUID.class), eq(customerId), anyString(), anyLong());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.enqueueCustomerProfileImageUpload(customerId, multipartFile))
+                .isInstanceOf(DuplicateKeyException.class);
+        ArgumentCaptor<UUID> uploadId = ArgumentCaptor.forClass(UUID.class);
+        verify(profileImageSpool).write(uploadId.capture(), any(InputStream.class), anyLong());
+        verify(profileImageSpool).delete(uploadId.getValue());
+    }
+
+    @Test
+    void canStoreSpooledProfileImage() throws IOException {
+        // Given
+        int customerId = 2;
+        byte[] bytes = "Hello World".getBytes();
+        UUID uploadId = UUID.randomUUID();
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+        when(profileImageSpool.open(uploadId)).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+        when(s3Buckets.getCustomer()).thenReturn("customer");
+        when(profileImageOutbox.markDone(uploadId)).thenReturn(true);
+
+        // When
+        boolean actual = underTest.storeSpooledProfileImage(new ProfileImageOutbox.PendingUpload(
+                uploadId, customerId, sha256(bytes), bytes.length, 1));
+
+        // Then
+        assertThat(actual).isTrue();
+        InOrder inOrder = inOrder(s3Service, transactionManager, profileImageOutbox, customerDAO);
+        inOrder.verify(s3Service).putObject(
+                eq("customer"),
+                eq("profile-images/sha256/%s".formatted(sha256(bytes))),
+                any(InputStream.class),
+                eq((long) bytes.length)
+        );
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(profileImageOutbox).markDone(uploadId);
+        inOrder.verify(customerDAO).updateCustomerProfileImageId(sha256(bytes), customerId);
+        inOrder.verify(transactionManager).commit(any());
+        verify(profileImageIndex).markStored(sha256(bytes), bytes.length);
+    }
+
+    @Test
+    void spooledUploadNoLongerPendingGivesBackTheReference() throws IOException {
+        // Given
+        int customerId = 2;
+        byte[] bytes = "Hello World".getBytes();
+        UUID uploadId = UUID.randomUUID();
+        when(profileImageSpool.open(uploadId)).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+        when(s3Buckets.getCustomer()).thenReturn("customer");
+        when(profileImageOutbox.markDone(uploadId)).thenReturn(false);
+
+        // When
+        boolean actual = underTest.storeSpooledProfileImage(new ProfileImageOutbox.PendingUpload(
+                uploadId, customerId, sha256(bytes), bytes.length, 1));
+
+        // Then
+        assertThat(actual).isFalse();
+        verify(profileImageIndex).release(sha256(bytes));
+        verify(profileImageIndex, never()).markStored(anyString(), anyLong());
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void willThrowWhenProfileImageUploadNotFound() {
+        // Given
+        int customerId = 2;
+        UUID uploadId = UUID.randomUUID();
+        when(profileImageOutbox.selectUpload(customerId, uploadId)).thenReturn(Optional.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerProfileImageUpload(customerId, uploadId))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] profile image upload [%s] not found".formatted(customerId, uploadId));
+    }
+
+    @Test
+    void canUploadProfileImageThumbnails() throws IOException {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = Files.readAllBytes(Path.of("src/test/resources/female.jpg"));
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", "female.jpg", "image/jpeg", bytes);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        // When
+        underTest.uploadCustomerProfileImage(customerId, multipartFile);
+
+        // Then
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        verify(customerDAO).updateCustomerProfileImageId(
+                profileImageIdArgumentCaptor.capture(),
+                eq(customerId)
+        );
+        String key = "profile-images/sha256/%s".formatted(profileImageIdArgumentCaptor.getValue());
+        verify(s3Service).putObject(eq(bucket), eq(key), any(InputStream.class), eq((long) bytes.length));
+        for (int size : ProfileImageResizer.THUMBNAIL_SIZES) {
+            verify(s3Service).putObject(eq(bucket), eq(key + "_" + size), any(byte[].class));
+        }
+    }
+
+    @Test
+    void canUploadProfileImageAsync() throws IOException {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = Files.readAllBytes(Path.of("src/test/resources/female.jpg"));
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", "female.jpg", "image/jpeg", bytes);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        CompletableFuture<Void> originalUpload = new CompletableFuture<>();
+        ArgumentCaptor<Path> originalArgumentCaptor = ArgumentCaptor.forClass(Path.class);
+        when(s3AsyncService.putObject(eq(bucket), anyString(), originalArgumentCaptor.capture()))
+                .thenAnswer(invocation -> {
+                    assertThat(invocation.<Path>getArgument(2)).hasBinaryContent(bytes);
+                    return originalUpload;
+                });
+        when(s3AsyncService.putObject(eq(bucket), anyString(), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        CompletableFuture<Void> actual = underTest.uploadCustomerProfileImageAsync(customerId, multipartFile);
+
+        // Then
+        assertThat(actual).isNotDone();
+        verify(customerDAO, never()).updateCustomerProfileImageId(anyString(), anyInt());
+
+        originalUpload.complete(null);
+        assertThat(actual).isCompleted();
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        verify(customerDAO).updateCustomerProfileImageId(
+                profileImageIdArgumentCaptor.capture(),
+                eq(customerId)
+        );
+        String key = "profile-images/sha256/%s".formatted(profileImageIdArgumentCaptor.getValue());
+        verify(s3AsyncService).putObject(eq(bucket), eq(key), any(Path.class));
+        for (int size : ProfileImageResizer.THUMBNAIL_SIZES) {
+            verify(s3AsyncService).putObject(eq(bucket), eq(key + "_" + size), any(byte[].class));
+        }
+        assertThat(originalArgumentCaptor.getValue()).doesNotExist();
+        verify(profileImageIndex).markStored(sha256(bytes), bytes.length);
+    }
+
+    @Test
+    void cannotUploadProfileImageWhenCustomerDoesNotExists() {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(false);
+
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(customerId, mock(MultipartFile.class)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id ["+customerId+"] not found");
+        //when
+
+        verify(customerDAO).existsPersonWithId(customerId);
+        verifyNoMoreInteractions(customerDAO);
+        verifyNoInteractions(s3Buckets);
+        verifyNoInteractions(s3Service);
+
+    }
+
+    @Test
+    void cannotUploadProfileImageWhenExceptionIsThrown() throws IOException {
+        // Given
+        int customerId = 2;
+
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.getInputStream()).thenThrow(IOException.class);
+
+        // When
+
+        assertThatThrownBy(() -> {
+            underTest.uploadCustomerProfileImage(customerId, multipartFile);
+
+        }).isInstanceOf(RuntimeException.class)
+                .hasMessage("failed to upload profile image")
+                .hasRootCauseInstanceOf(IOException.class);
+        // Then
+
+        verify(customerDAO, never()).updateCustomerProfileImageId(any(), any());
+
+    }
+
+    @Test
+    void canPresignProfileImageUpload() {
+        // Given
+        int customerId = 2;
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        PresignedUrl presignedUrl = new PresignedUrl("https://s3/upload", Instant.now());
+        when(s3Service.presignPutObject(eq(bucket), startsWith("profile-images/2/")))
+                .thenReturn(presignedUrl);
+
+        // When
+        ProfileImageUpload upload = underTest.presignCustomerProfileImageUpload(customerId);
+
+        // Then
+        verify(s3Service).presignPutObject(bucket, "profile-images/2/" + upload.profileImageId());
+        assertThat(upload.url()).isEqualTo(presignedUrl.url());
+        assertThat(upload.expiresAt()).isEqualTo(presignedUrl.expiresAt());
+        verify(customerDAO, never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void canConfirmProfileImageUpload() throws IOException {
+        // Given
+        int customerId = 2;
+        String uploadId = UUID.randomUUID().toString();
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        byte[] bytes = Files.readAllBytes(Path.of("src/test/resources/female.jpg"));
+        String uploadKey = "profile-images/%s/%s".formatted(customerId, uploadId);
+        when(s3Service.getObjectStream(bucket, uploadKey)).thenAnswer(invocation -> new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength((long) bytes.length).build(),
+                new ByteArrayInputStream(bytes)
+        ));
+
+        // When
+        underTest.confirmCustomerProfileImageUpload(customerId, uploadId);
+
+        // Then
+        String key = "profile-images/sha256/%s".formatted(sha256(bytes));
+        verify(s3Service).putObject(eq(bucket), eq(key), any(InputStream.class), eq((long) bytes.length));
+        for (int size : ProfileImageResizer.THUMBNAIL_SIZES) {
+            verify(s3Service).putObject(eq(bucket), eq(key + "_" + size), any(byte[].class));
+        }
+        verify(profileImageIndex).markStored(sha256(bytes), bytes.length);
+        verify(customerDAO).updateCustomerProfileImageId(sha256(bytes), customerId);
+        verify(s3Service).deleteObjects(bucket, List.of(uploadKey));
+    }
+
+    @Test
+    void confirmReusesProfileImageWithSameContent() {
+        // Given
+        int customerId = 2;
+        String uploadId = UUID.randomUUID().toString();
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        byte[] bytes = "Hello World".getBytes();
+        String uploadKey = "profile-images/%s/%s".formatted(customerId, uploadId);
+        when(s3Service.getObjectStream(bucket, uploadKey)).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength((long) bytes.length).build(),
+                new ByteArrayInputStream(bytes)
+        ));
+        when(profileImageIndex.acquire(sha256(bytes), bytes.length)).thenReturn(true);
+
+        // When
+        underTest.confirmCustomerProfileImageUpload(customerId, uploadId);
+
+        // Then
+        verify(s3Service, never()).putObject(anyString(), anyString(), any(InputStream.class), anyLong());
+        verify(profileImageIndex, never()).markStored(anyString(), anyLong());
+        verify(customerDAO).updateCustomerProfileImageId(sha256(bytes), customerId);
+        verify(s3Service).deleteObjects(bucket, List.of(uploadKey));
+    }
+
+    @Test
+    void cannotConfirmProfileImageThatWasNotUploaded() {
+        // Given
+        int customerId = 2;
+        String profileImageId = UUID.randomUUID().toString();
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(s3Service.getObjectStream(bucket, "profile-images/%s/%s".formatted(customerId, profileImageId)))
+                .thenThrow(NoSuchKeyException.builder().build());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.confirmCustomerProfileImageUpload(customerId, profileImageId))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] profile image [%s] was not uploaded"
+                        .formatted(customerId, profileImageId));
+        verify(customerDAO, never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void cannotConfirmProfileImageWithInvalidId() {
+        // Given
+        int customerId = 2;
+        when(customerDAO.existsPersonWithId(customerId)).thenReturn(true);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.confirmCustomerProfileImageUpload(customerId, "../../secret"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("invalid profile image id [../../secret]");
+        verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void canPresignProfileImageThumbnail() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        String key = "profile-images/%s/%s".formatted(customerId, profileImageId);
+        PresignedUrl presignedUrl = new PresignedUrl("https://s3/thumbnail", Instant.now());
+        when(s3Service.presignGetObject(bucket, key + "_64")).thenReturn(presignedUrl);
+
+        // When
+        PresignedUrl actual = underTest.presignCustomerProfileImage(customerId, profileImageId, 64);
+
+        // Then
+        verify(s3Service).headObject(bucket, key + "_64");
+        assertThat(actual).isEqualTo(presignedUrl);
+    }
+
+    @Test
+    void presignFallsBackToOriginalWhenThumbnailIsMissing() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        String key = "profile-images/%s/%s".formatted(customerId, profileImageId);
+        when(s3Service.headObject(bucket, key + "_256"))
+                .thenThrow(NoSuchKeyException.builder().build());
+        PresignedUrl presignedUrl = new PresignedUrl("https://s3/original", Instant.now());
+        when(s3Service.presignGetObject(bucket, key)).thenReturn(presignedUrl);
+
+        // When
+        PresignedUrl actual = underTest.presignCustomerProfileImage(customerId, profileImageId, 256);
+
+        // Then
+        assertThat(actual).isEqualTo(presignedUrl);
+    }
+
+    @Test
+    void canGetProfileImageId() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+        Customer customer = new Customer(
+                (long) customerId,
+                "lzzy",
+                "lzzy@mail.com",
+                "azerty.123..",
+                19,
+                Gender.FEMALE,
+                profileImageId
+        );
+        when(customerDAO.selectCustomersById(customerId)).thenReturn(Optional.of(customer));
+
+        // When
+        String actual = underTest.getCustomerProfileImageId(customerId);
+
+        // Then
+        assertThat(actual).isEqualTo(profileImageId);
+        verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void canDownloadProfileImage() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        byte[] expectedImage = "image".getBytes();
+        ResponseInputStream<GetObjectResponse> expectedStream = new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength((long) expectedImage.length).build(),
+                new ByteArrayInputStream(expectedImage)
+        );
+        when(s3Service.getObjectStream(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId)
+        )).thenReturn(expectedStream);
+        // When
+        ResponseInputStream<GetObjectResponse> actualImage =
+                underTest.getCustomerProfileImage(customerId, profileImageId, null);
+
+        // Then
+        assertThat(actualImage).hasBinaryContent(expectedImage);
+    }
+
+    @Test
+    void canDownloadProfileImageThumbnail() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        byte[] expectedImage = "thumbnail".getBytes();
+        when(s3Service.getObjectStream(
+                bucket,
+                "profile-images/%s/%s_64".formatted(customerId, profileImageId)
+        )).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                new ByteArrayInputStream(expectedImage)
+        ));
+
+        // When
+        ResponseInputStream<GetObjectResponse> actualImage =
+                underTest.getCustomerProfileImage(customerId, profileImageId, 64);
+
+        // Then
+        assertThat(actualImage).hasBinaryContent(expectedImage);
+    }
+
+    @Test
+    void downloadFallsBackToOriginalWhenThumbnailIsMissing() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        String key = "profile-images/%s/%s".formatted(customerId, profileImageId);
+        when(s3Service.getObjectStream(bucket, key + "_256"))
+                .thenThrow(NoSuchKeyException.builder().build());
+        byte[] expectedImage = "image".getBytes();
+        when(s3Service.getObjectStream(bucket, key)).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                new ByteArrayInputStream(expectedImage)
+        ));
+
+        // When
+        ResponseInputStream<GetObjectResponse> actualImage =
+                underTest.getCustomerProfileImage(customerId, profileImageId, 256);
+
+        // Then
+        assertThat(actualImage).hasBinaryContent(expectedImage);
+    }
+
+    @Test
+    void cannotDownloadProfileImageMissingFromBucket() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(s3Service.getObjectStream(bucket, "profile-images/%s/%s".formatted(customerId, profileImageId)))
+                .thenThrow(NoSuchKeyException.builder().build());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerProfileImage(customerId, profileImageId, null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] profile image not found".formatted(customerId));
+    }
+
+    @Test
+    void asyncDownloadFallsBackToOriginalWhenThumbnailIsMissing() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        String key = "profile-images/%s/%s".formatted(customerId, profileImageId);
+        when(s3AsyncService.getObject(bucket, key + "_256"))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+        byte[] expectedImage = "image".getBytes();
+        when(s3AsyncService.getObject(bucket, key)).thenReturn(CompletableFuture.completedFuture(
+                new ResponseInputStream<>(
+                        GetObjectResponse.builder().build(),
+                        new ByteArrayInputStream(expectedImage)
+                )));
+
+        // When
+        ResponseInputStream<GetObjectResponse> actualImage =
+                underTest.getCustomerProfileImageAsync(customerId, profileImageId, 256).join();
+
+        // Then
+        assertThat(actualImage).hasBinaryContent(expectedImage);
+    }
+
+    @Test
+    void cannotDownloadProfileImageMissingFromBucketAsync() {
+        // Given
+        int customerId = 2;
+        String profileImageId = "45454";
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(s3AsyncService.getObject(bucket, "profile-images/%s/%s".formatted(customerId, profileImageId)))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+        // When
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> actual =
+                underTest.getCustomerProfileImageAsync(customerId, profileImageId, null);
+
+        // Then
+        assertThatThrownBy(actual::join)
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] profile image not found".formatted(customerId));
+    }
+
+    @Test
+    void cannotDownloadProfileImageWithUnknownSize() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerProfileImage(2, "45454", 100))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("size must be one of [512, 256, 64]");
+
+        verifyNoInteractions(s3Service);
     }
 
 
@@ -538,7 +1514,7 @@ class CustomerServiceTest {
         // When
         // Then
 
-        assertThatThrownBy(() -> underTest.getCustomerProfileImage(customerId))
+        assertThatThrownBy(() -> underTest.getCustomerProfileImageId(customerId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("customer with id [%s] profile image not found".formatted(customerId));
 
@@ -560,7 +1536,7 @@ class CustomerServiceTest {
         // When
         // Then
 
-        assertThatThrownBy(() -> underTest.getCustomerProfileImage(customerId))
+        assertThatThrownBy(() -> underTest.getCustomerProfileImageId(customerId))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("customer with id [%s] not found".formatted(customerId));
 
@@ -568,4 +1544,12 @@ class CustomerServiceTest {
         verifyNoInteractions(s3Buckets);
         verifyNoInteractions(s3Service);
     }
-}
\ No newline at end of file
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
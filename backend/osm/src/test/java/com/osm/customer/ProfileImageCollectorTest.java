@@ -0,0 +1,180 @@
+package com.osm.customer;
+
+import com.osm.s3.S3Buckets;
+import com.osm.s3.S3Service;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileImageCollectorTest {
+
+    private static final String BUCKET = "customer";
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(2));
+
+    @Mock
+    private S3Service s3Service;
+    @Mock
+    private S3Buckets s3Buckets;
+    @Mock
+    private ProfileImageIndex profileImageIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private MeterRegistry meterRegistry;
+    private ProfileImageCollector underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new ProfileImageCollector(
+                s3Service,
+                s3Buckets,
+                profileImageIndex,
+                transactionManager,
+                1000,
+                Duration.ofDays(1),
+                1000,
+                meterRegistry
+        );
+        when(s3Buckets.getCustomer()).thenReturn(BUCKET);
+    }
+
+    @Test
+    void deletesUnreferencedImagesWithTheirThumbnails() {
+        // Given
+        listing(null, null,
+                object("profile-images/sha256/orphan", 100),
+                object("profile-images/sha256/orphan_64", 10),
+                object("profile-images/sha256/used", 100));
+        when(profileImageIndex.selectReferenced(Set.of("orphan", "used"))).thenReturn(Set.of("used"));
+        when(profileImageIndex.removeUnreferenced(List.of("orphan"))).thenReturn(List.of("orphan"));
+        when(s3Service.deleteObjects(eq(BUCKET), anyCollection()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(1)));
+
+        // When
+        long actual = underTest.collect();
+
+        // Then
+        assertThat(actual).isEqualTo(110);
+        verify(s3Service).deleteObjects(eq(BUCKET), argThat(keys -> keys.size() == 2
+                && keys.containsAll(List.of("profile-images/sha256/orphan", "profile-images/sha256/orphan_64"))));
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.counter("profile.images.reclaimed.bytes").count()).isEqualTo(110);
+        assertThat(meterRegistry.counter("profile.images.reclaimed.objects").count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsRecentObjects() {
+        // Given
+        listing(null, null, S3Object.builder()
+                .key("profile-images/sha256/fresh")
+                .size(100L)
+                .lastModified(Instant.now())
+                .build());
+
+        // When
+        long actual = underTest.collect();
+
+        // Then
+        assertThat(actual).isZero();
+        verifyNoInteractions(profileImageIndex);
+        verify(s3Service, never()).deleteObjects(any(), any());
+    }
+
+    @Test
+    void keepsImagesReferencedSinceTheyWereListed() {
+        // Given
+        listing(null, null, object("profile-images/1/legacy", 100));
+        when(profileImageIndex.selectReferenced(Set.of("legacy"))).thenReturn(Set.of());
+        when(profileImageIndex.removeUnreferenced(List.of("legacy"))).thenReturn(List.of());
+
+        // When
+        long actual = underTest.collect();
+
+        // Then
+        assertThat(actual).isZero();
+        verify(s3Service, never()).deleteObjects(any(), any());
+    }
+
+    @Test
+    void scansEveryPage() {
+        // Given
+        listing(null, "profile-images/sha256/a", object("profile-images/sha256/a", 100));
+        listing("profile-images/sha256/a", null, object("profile-images/sha256/b", 100));
+        when(profileImageIndex.selectReferenced(any())).thenReturn(Set.of());
+        when(profileImageIndex.removeUnreferenced(any()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(0)));
+        when(s3Service.deleteObjects(eq(BUCKET), anyCollection()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(1)));
+
+        // When
+        long actual = underTest.collect();
+
+        // Then
+        assertThat(actual).isEqualTo(200);
+        verify(profileImageIndex).removeUnreferenced(List.of("a"));
+        verify(profileImageIndex).removeUnreferenced(List.of("b"));
+    }
+
+    @Test
+    void commitsWhenS3DeleteFails() {
+        // Given
+        listing(null, null, object("profile-images/sha256/orphan", 100));
+        when(profileImageIndex.selectReferenced(any())).thenReturn(Set.of());
+        when(profileImageIndex.removeUnreferenced(any())).thenReturn(List.of("orphan"));
+        when(s3Service.deleteObjects(eq(BUCKET), anyCollection()))
+                .thenThrow(SdkClientException.create("unavailable"));
+
+        // When
+        long actual = underTest.collect();
+
+        // Then
+        assertThat(actual).isZero();
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.counter("profile.images.reclaimed.bytes").count()).isZero();
+    }
+
+    private void listing(String continuationToken, String nextContinuationToken, S3Object... objects) {
+        ListObjectsV2Response page = ListObjectsV2Response.builder()
+                .contents(objects)
+                .nextContinuationToken(nextContinuationToken)
+                .build();
+        if (continuationToken == null) {
+            when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), isNull(), anyInt())).thenReturn(page);
+        } else {
+            when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), eq(continuationToken), anyInt()))
+                    .thenReturn(page);
+        }
+    }
+
+    private static S3Object object(String key, long size) {
+        return S3Object.builder()
+                .key(key)
+                .size(size)
+                .lastModified(OLD)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.osm.customer;
+
+import com.osm.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProfileImageIndexTest extends AbstractTestcontainers {
+
+    private ProfileImageIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageIndex(getJdbcTemplate());
+    }
+
+    @Test
+    void acquiringUnknownImageAddsItAsNotStored() {
+        // Given
+        String profileImageId = randomId();
+
+        // When
+        boolean actual = underTest.acquire(profileImageId, 100);
+
+        // Then
+        assertThat(actual).isFalse();
+        assertThat(refCount(profileImageId)).isEqualTo(1);
+    }
+
+    @Test
+    void canAcquireStoredImage() {
+        // Given
+        String profileImageId = randomId();
+        underTest.acquire(profileImageId, 100);
+        underTest.markStored(profileImageId, 100);
+
+        // When
+        boolean actual = underTest.acquire(profileImageId, 100);
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(refCount(profileImageId)).isEqualTo(2);
+    }
+
+    @Test
+    void acquiringImageNotYetStoredCountsTwoReferences() {
+        // Given
+        String profileImageId = randomId();
+        underTest.acquire(profileImageId, 100);
+
+        // When
+        boolean actual = underTest.acquire(profileImageId, 100);
+
+        // Then
+        assertThat(actual).isFalse();
+        assertThat(refCount(profileImageId)).isEqualTo(2);
+    }
+
+    @Test
+    void acquireWaitsForTheCollectorThenAddsTheImageAgain() throws Exception {
+        // Given
+        String profileImageId = randomId();
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        ProfileImageIndex collector = new ProfileImageIndex(jdbcTemplate);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        CompletableFuture<Boolean> acquired = new CompletableFuture<>();
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            collector.removeUnreferenced(List.of(profileImageId));
+            CompletableFuture.supplyAsync(() -> underTest.acquire(profileImageId, 100))
+                    .whenComplete((stored, e) -> {
+                        if (e != null) {
+                            acquired.completeExceptionally(e);
+                        } else {
+                            acquired.complete(stored);
+                        }
+                    });
+            assertThatThrownBy(() -> acquired.get(500, TimeUnit.MILLISECONDS))
+                    .isInstanceOf(TimeoutException.class);
+        });
+
+        // Then
+        assertThat(acquired.get(10, TimeUnit.SECONDS)).isFalse();
+        assertThat(refCount(profileImageId)).isEqualTo(1);
+    }
+
+    @Test
+    void releaseStopsAtZero() {
+        // Given
+        String profileImageId = randomId();
+        underTest.acquire(profileImageId, 100);
+
+        // When
+        underTest.release(profileImageId);
+        underTest.release(profileImageId);
+
+        // Then
+        assertThat(refCount(profileImageId)).isZero();
+    }
+
+    @Test
+    void selectsImagesInUse() {
+        // Given
+        String used = randomId();
+        String released = randomId();
+        String unknown = randomId();
+        underTest.acquire(used, 100);
+        underTest.acquire(released, 100);
+        underTest.release(released);
+
+        // When
+        Set<String> actual = underTest.selectReferenced(List.of(used, released, unknown));
+
+        // Then
+        assertThat(actual).containsExactly(used);
+    }
+
+    @Test
+    void removesOnlyUnreferencedImages() {
+        // Given
+        String used = randomId();
+        String released = randomId();
+        String unknown = randomId();
+        underTest.acquire(used, 100);
+        underTest.acquire(released, 100);
+        underTest.release(released);
+
+        // When
+        List<String> actual = underTest.removeUnreferenced(List.of(used, released, unknown));
+
+        // Then
+        assertThat(actual).containsExactlyInAnyOrder(released, unknown);
+        assertThat(underTest.acquire(released, 100)).isFalse();
+        assertThat(underTest.acquire(unknown, 100)).isFalse();
+        assertThat(refCount(used)).isEqualTo(1);
+    }
+
+    private int refCount(String profileImageId) {
+        return getJdbcTemplate().queryForObject(
+                "SELECT ref_count FROM profile_image WHERE id = ?", Integer.class, profileImageId);
+    }
+
+    private static String randomId() {
+        return (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+    }
+}
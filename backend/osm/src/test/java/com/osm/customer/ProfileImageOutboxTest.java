@@ -0,0 +1,152 @@
+package com.osm.customer;
+
+import com.osm.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageOutboxTest extends AbstractTestcontainers {
+
+    private ProfileImageOutbox underTest;
+    private int customerId;
+
+    @BeforeEach
+    void setUp() {
+        // uploads of other tests are due as well, each test claims on its own node
+        underTest = new ProfileImageOutbox(getJdbcTemplate(), UUID.randomUUID().toString());
+        customerId = getJdbcTemplate().queryForObject("""
+                INSERT INTO customer(name, email, password, age, gender)
+                VALUES ('Alex', ?, 'password', 20, 'MALE')
+                RETURNING id
+                """, Integer.class, UUID.randomUUID() + "@osm.com");
+    }
+
+    @Test
+    void canClaimPendingUpload() {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        underTest.insert(uploadId, customerId, "profile-image", 11);
+
+        // When
+        List<ProfileImageOutbox.PendingUpload> actual = underTest.claim(10, Duration.ofMinutes(5));
+
+        // Then
+        assertThat(actual).containsExactly(
+                new ProfileImageOutbox.PendingUpload(uploadId, customerId, "profile-image", 11, 1));
+        assertThat(underTest.claim(10, Duration.ofMinutes(5))).isEmpty();
+    }
+
+    @Test
+    void doesNotClaimUploadsOfOtherNodes() {
+        // Given
+        new ProfileImageOutbox(getJdbcTemplate(), UUID.randomUUID().toString())
+                .insert(UUID.randomUUID(), customerId, "profile-image", 11);
+
+        // When
+        List<ProfileImageOutbox.PendingUpload> actual = underTest.claim(10, Duration.ofMinutes(5));
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void claimsUploadAgainOnceDue() {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        underTest.insert(uploadId, customerId, "profile-image", 11);
+        underTest.claim(10, Duration.ofMinutes(5));
+
+        // When
+        underTest.retry(uploadId, Duration.ZERO, "S3 unavailable");
+
+        // Then
+        assertThat(underTest.claim(10, Duration.ofMinutes(5)))
+                .extracting(ProfileImageOutbox.PendingUpload::attempts)
+                .containsExactly(2);
+        assertThat(underTest.selectUpload(customerId, uploadId).orElseThrow().error())
+                .isEqualTo("S3 unavailable");
+    }
+
+    @Test
+    void canMarkUploadDoneOnce() {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        underTest.insert(uploadId, customerId, "profile-image", 11);
+
+        // When
+        boolean actual = underTest.markDone(uploadId);
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(underTest.markDone(uploadId)).isFalse();
+        assertThat(underTest.selectUpload(customerId, uploadId).orElseThrow().status())
+                .isEqualTo(ProfileImageUploadStatus.Status.DONE);
+    }
+
+    @Test
+    void uploadsAreDeletedWithTheirCustomer() {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        underTest.insert(uploadId, customerId, "profile-image", 11);
+
+        // When
+        getJdbcTemplate().update("DELETE FROM customer WHERE id = ?", customerId);
+
+        // Then
+        assertThat(underTest.selectUpload(customerId, uploadId)).isEmpty();
+        assertThat(underTest.markDone(uploadId)).isFalse();
+    }
+
+    @Test
+    void selectsUploadsStillPending() {
+        // Given
+        UUID pending = UUID.randomUUID();
+        UUID done = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        underTest.insert(pending, customerId, "profile-image", 11);
+        underTest.insert(done, customerId, "profile-image", 11);
+        underTest.markDone(done);
+
+        // When
+        Set<UUID> actual = underTest.selectPending(List.of(pending, done, unknown));
+
+        // Then
+        assertThat(actual).containsExactly(pending);
+    }
+
+    @Test
+    void deletesOnlyCompletedUploadsPastRetention() {
+        // Given
+        UUID pending = UUID.randomUUID();
+        UUID done = UUID.randomUUID();
+        UUID failed = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        underTest.insert(pending, customerId, "profile-image", 11);
+        underTest.insert(done, customerId, "profile-image", 11);
+        underTest.insert(failed, customerId, "profile-image", 11);
+        underTest.insert(recent, customerId, "profile-image", 11);
+        underTest.markDone(done);
+        underTest.markFailed(failed, "S3 unavailable");
+        underTest.markDone(recent);
+        getJdbcTemplate().update("""
+                UPDATE profile_image_upload
+                SET created_at = now() - interval '8 days'
+                WHERE id IN (?, ?, ?)
+                """, pending, done, failed);
+
+        // When
+        underTest.deleteCompleted(Duration.ofDays(7));
+
+        // Then
+        assertThat(underTest.selectUpload(customerId, pending)).isPresent();
+        assertThat(underTest.selectUpload(customerId, done)).isEmpty();
+        assertThat(underTest.selectUpload(customerId, failed)).isEmpty();
+        assertThat(underTest.selectUpload(customerId, recent)).isPresent();
+    }
+}
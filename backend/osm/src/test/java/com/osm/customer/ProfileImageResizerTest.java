@@ -0,0 +1,74 @@
+package com.osm.customer;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageResizerTest {
+
+    private final ProfileImageResizer underTest = new ProfileImageResizer();
+
+    @Test
+    void generatesEveryThumbnailSize() throws IOException {
+        // Given
+        byte[] image = png(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB));
+
+        // When
+        Map<Integer, byte[]> thumbnails = underTest.thumbnails(new ByteArrayInputStream(image));
+
+        // Then
+        assertThat(thumbnails).containsOnlyKeys(512, 256, 64);
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(thumbnails.get(256)));
+        assertThat(thumbnail.getWidth()).isEqualTo(256);
+        assertThat(thumbnail.getHeight()).isEqualTo(171);
+    }
+
+    @Test
+    void doesNotUpscaleSmallImages() {
+        // Given
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        BufferedImage scaled = ProfileImageResizer.scaleToFit(image, 64);
+
+        // Then
+        assertThat(scaled).isSameAs(image);
+    }
+
+    @Test
+    void keepsAspectRatioOfTallImages() {
+        // Given
+        BufferedImage image = new BufferedImage(300, 3000, BufferedImage.TYPE_INT_ARGB);
+
+        // When
+        BufferedImage scaled = ProfileImageResizer.scaleToFit(image, 64);
+
+        // Then
+        assertThat(scaled.getWidth()).isEqualTo(6);
+        assertThat(scaled.getHeight()).isEqualTo(64);
+        assertThat(scaled.getColorModel().hasAlpha()).isTrue();
+    }
+
+    @Test
+    void returnsNoThumbnailsForNonImages() throws IOException {
+        // When
+        Map<Integer, byte[]> thumbnails = underTest.thumbnails(
+                new ByteArrayInputStream("Hello World".getBytes()));
+
+        // Then
+        assertThat(thumbnails).isEmpty();
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
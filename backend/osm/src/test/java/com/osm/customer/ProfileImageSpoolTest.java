@@ -0,0 +1,120 @@
+package com.osm.customer;
+
+import com.osm.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProfileImageSpoolTest {
+
+    @TempDir
+    private Path root;
+    private MeterRegistry meterRegistry;
+    private ProfileImageSpool underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new ProfileImageSpool(root.toString(), 16, meterRegistry);
+    }
+
+    @Test
+    void canWriteAndOpenUpload() throws Exception {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        byte[] bytes = "Hello World".getBytes();
+
+        // When
+        String actual = underTest.write(uploadId, new ByteArrayInputStream(bytes), bytes.length);
+
+        // Then
+        assertThat(actual).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)));
+        try (InputStream content = underTest.open(uploadId)) {
+            assertThat(content).hasBinaryContent(bytes);
+        }
+        assertThat(meterRegistry.get("profile.images.spool.bytes").gauge().value()).isEqualTo(bytes.length);
+    }
+
+    @Test
+    void refusesUploadsPastMaxBytes() throws Exception {
+        // Given
+        byte[] bytes = "Hello World".getBytes();
+        underTest.write(UUID.randomUUID(), new ByteArrayInputStream(bytes), bytes.length);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.write(UUID.randomUUID(), new ByteArrayInputStream(bytes), bytes.length))
+                .isInstanceOf(ServiceUnavailableException.class);
+        try (var files = Files.list(root)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    void deleteFreesSpace() throws Exception {
+        // Given
+        UUID uploadId = UUID.randomUUID();
+        byte[] bytes = "Hello World".getBytes();
+        underTest.write(uploadId, new ByteArrayInputStream(bytes), bytes.length);
+
+        // When
+        underTest.delete(uploadId);
+
+        // Then
+        assertThat(meterRegistry.get("profile.images.spool.bytes").gauge().value()).isZero();
+        underTest.write(UUID.randomUUID(), new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    @Test
+    void listsUploadsSpooledBeforeCutoff() throws Exception {
+        // Given
+        UUID old = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        byte[] bytes = "Hello".getBytes();
+        underTest.write(old, new ByteArrayInputStream(bytes), bytes.length);
+        underTest.write(recent, new ByteArrayInputStream(bytes), bytes.length);
+        Files.write(root.resolve(UUID.randomUUID() + ".tmp"), bytes);
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(5));
+        Files.setLastModifiedTime(root.resolve(old.toString()), FileTime.from(cutoff.minusSeconds(1)));
+
+        // When
+        var actual = underTest.listUploads(cutoff);
+
+        // Then
+        assertThat(actual).containsExactly(old);
+    }
+
+    @Test
+    void countsUploadsLeftByPreviousRun() throws Exception {
+        // Given
+        byte[] bytes = "Hello World".getBytes();
+        underTest.write(UUID.randomUUID(), new ByteArrayInputStream(bytes), bytes.length);
+        Files.write(root.resolve(UUID.randomUUID() + ".tmp"), bytes);
+
+        // When
+        ProfileImageSpool actual = new ProfileImageSpool(root.toString(), 16, new SimpleMeterRegistry());
+
+        // Then
+        assertThatThrownBy(() -> actual.write(UUID.randomUUID(), new ByteArrayInputStream(bytes), bytes.length))
+                .isInstanceOf(ServiceUnavailableException.class);
+        try (var files = Files.list(root)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+}
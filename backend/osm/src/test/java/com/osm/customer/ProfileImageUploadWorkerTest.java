@@ -0,0 +1,197 @@
+package com.osm.customer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileImageUploadWorkerTest {
+
+    @Mock
+    private CustomerService customerService;
+    @Mock
+    private ProfileImageOutbox profileImageOutbox;
+    @Mock
+    private ProfileImageSpool profileImageSpool;
+    private ProfileImageUploadWorker underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageUploadWorker(
+                customerService,
+                profileImageOutbox,
+                profileImageSpool,
+                2,
+                2,
+                3,
+                Duration.ofSeconds(5),
+                Duration.ofDays(7),
+                "/var/spool/osm",
+                "node-1",
+                false
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void storesClaimedUploads() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload upload = upload(1);
+        when(profileImageOutbox.claim(eq(2), any())).thenReturn(List.of(upload));
+        when(customerService.storeSpooledProfileImage(upload)).thenReturn(true);
+
+        // When
+        int actual = underTest.drain();
+
+        // Then
+        assertThat(actual).isEqualTo(1);
+        verify(customerService).storeSpooledProfileImage(upload);
+        verify(profileImageSpool).delete(upload.id());
+    }
+
+    @Test
+    void claimsAgainWhileBatchesAreFull() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload first = upload(1);
+        ProfileImageOutbox.PendingUpload second = upload(1);
+        ProfileImageOutbox.PendingUpload third = upload(1);
+        when(profileImageOutbox.claim(eq(2), any()))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+        when(customerService.storeSpooledProfileImage(any())).thenReturn(true);
+
+        // When
+        int actual = underTest.drain();
+
+        // Then
+        assertThat(actual).isEqualTo(3);
+        verify(profileImageOutbox, times(2)).claim(anyInt(), any());
+        verify(customerService, times(3)).storeSpooledProfileImage(any());
+    }
+
+    @Test
+    void skipsUploadsNoLongerPending() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload upload = upload(1);
+        when(profileImageOutbox.claim(eq(2), any())).thenReturn(List.of(upload));
+        when(customerService.storeSpooledProfileImage(upload)).thenReturn(false);
+
+        // When
+        underTest.drain();
+
+        // Then
+        verify(profileImageSpool).delete(upload.id());
+        verify(profileImageOutbox, never()).retry(any(), any(), any());
+        verify(profileImageOutbox, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void retriesFailedUploadsWithBackoff() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload upload = upload(2);
+        when(profileImageOutbox.claim(eq(2), any())).thenReturn(List.of(upload));
+        doThrow(new IOException("S3 unavailable")).when(customerService).storeSpooledProfileImage(upload);
+
+        // When
+        underTest.drain();
+
+        // Then
+        verify(profileImageOutbox).retry(upload.id(), Duration.ofSeconds(10), "S3 unavailable");
+        verify(profileImageOutbox, never()).markFailed(any(), any());
+        verify(profileImageSpool, never()).delete(any());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload upload = upload(3);
+        when(profileImageOutbox.claim(eq(2), any())).thenReturn(List.of(upload));
+        doThrow(new IOException("S3 unavailable")).when(customerService).storeSpooledProfileImage(upload);
+
+        // When
+        underTest.drain();
+
+        // Then
+        verify(profileImageOutbox).markFailed(upload.id(), "S3 unavailable");
+        verify(profileImageSpool).delete(upload.id());
+    }
+
+    @Test
+    void failsUploadsMissingFromTheSpool() throws Exception {
+        // Given
+        ProfileImageOutbox.PendingUpload upload = upload(1);
+        when(profileImageOutbox.claim(eq(2), any())).thenReturn(List.of(upload));
+        doThrow(new NoSuchFileException(upload.id().toString()))
+                .when(customerService).storeSpooledProfileImage(upload);
+
+        // When
+        underTest.drain();
+
+        // Then
+        verify(profileImageOutbox).markFailed(upload.id(), "Upload is missing from the spool, upload the image again");
+        verify(profileImageOutbox, never()).retry(any(), any(), any());
+    }
+
+    @Test
+    void cleanUpDeletesCompletedUploadsAndOrphanedSpoolFiles() throws Exception {
+        // Given
+        UUID pending = UUID.randomUUID();
+        UUID orphan = UUID.randomUUID();
+        when(profileImageSpool.listUploads(any())).thenReturn(List.of(pending, orphan));
+        when(profileImageOutbox.selectPending(List.of(pending, orphan))).thenReturn(Set.of(pending));
+
+        // When
+        underTest.cleanUp();
+
+        // Then
+        verify(profileImageOutbox).deleteCompleted(Duration.ofDays(7));
+        verify(profileImageSpool).delete(orphan);
+        verify(profileImageSpool, never()).delete(pending);
+    }
+
+    @Test
+    void requiresAStableSpoolAndNode() {
+        // When
+        // Then
+        assertThatThrownBy(() -> new ProfileImageUploadWorker(
+                customerService,
+                profileImageOutbox,
+                profileImageSpool,
+                2,
+                2,
+                3,
+                Duration.ofSeconds(5),
+                Duration.ofDays(7),
+                "/var/spool/osm",
+                "",
+                false
+        ))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("profile-image.outbox.node");
+    }
+
+    private static ProfileImageOutbox.PendingUpload upload(int attempts) {
+        return new ProfileImageOutbox.PendingUpload(UUID.randomUUID(), 1, "profile-image", 11, attempts);
+    }
+}
@@ -0,0 +1,112 @@
+package com.osm.customer;
+
+import com.osm.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveCustomerRepositoryTest extends AbstractTestcontainers {
+
+    private ReactiveCustomerRepository underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerRepository(getDatabaseClient());
+    }
+
+    @Test
+    void insertCustomerAndSelectCustomerById() {
+        // Given
+        Customer customer = customer();
+
+        // When
+        Long id = underTest.insertCustomer(customer).block();
+
+        // Then
+        Customer actual = underTest.selectCustomerById(id.intValue()).block();
+        assertThat(actual.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(actual.getGender()).isEqualTo(Gender.FEMALE);
+        assertThat(actual.getVersion()).isZero();
+        assertThat(underTest.selectCustomerByEmail(customer.getEmail()).block().getId()).isEqualTo(id);
+    }
+
+    @Test
+    void insertCustomerReturnsNothingWhenEmailIsTaken() {
+        // Given
+        Customer customer = customer();
+        underTest.insertCustomer(customer).block();
+
+        // When
+        Long actual = underTest.insertCustomer(customer).block();
+
+        // Then
+        assertThat(actual).isNull();
+    }
+
+    @Test
+    void selectCustomersAfterId() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(customer()).block();
+        }
+        List<Customer> firstPage = underTest.selectCustomersAfterId(0, 2).collectList().block();
+
+        // When
+        List<Customer> nextPage = underTest.selectCustomersAfterId(firstPage.get(1).getId(), 2)
+                .collectList().block();
+
+        // Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+        assertThat(nextPage).isNotEmpty();
+        assertThat(nextPage)
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(firstPage.get(1).getId()));
+    }
+
+    @Test
+    void updateCustomerAtStaleVersionReturnsNothing() {
+        // Given
+        Long id = underTest.insertCustomer(customer()).block();
+        Customer update = new Customer();
+        update.setId(id);
+        update.setName("Ali");
+        update.setVersion(0L);
+        underTest.updateCustomer(update).block();
+
+        // When
+        Customer actual = underTest.updateCustomer(update).block();
+
+        // Then
+        assertThat(actual).isNull();
+        Customer current = underTest.selectCustomerById(id.intValue()).block();
+        assertThat(current.getName()).isEqualTo("Ali");
+        assertThat(current.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void deleteCustomerByIdReturnsTheDeletedRow() {
+        // Given
+        Long id = underTest.insertCustomer(customer()).block();
+
+        // When
+        Customer deleted = underTest.deleteCustomerById(id.intValue()).block();
+
+        // Then
+        assertThat(deleted.getId()).isEqualTo(id);
+        assertThat(underTest.existsCustomerWithId(id.intValue()).block()).isFalse();
+        assertThat(underTest.deleteCustomerById(id.intValue()).block()).isNull();
+    }
+
+    private static Customer customer() {
+        return new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "_" + UUID.randomUUID(),
+                "azerty.123..", 20,
+                Gender.FEMALE
+        );
+    }
+}
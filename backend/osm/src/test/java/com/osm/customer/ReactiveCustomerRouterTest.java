@@ -0,0 +1,170 @@
+package com.osm.customer;
+
+import com.osm.exception.ApiError;
+import com.osm.exception.ResourceNotFoundException;
+import com.osm.jwt.JWTAuthenticationMode;
+import com.osm.jwt.JWTHandlerFilterFunction;
+import com.osm.jwt.JWTUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ReactiveCustomerRouterTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    private final ReactiveCustomerService customerService = mock(ReactiveCustomerService.class);
+    private final JWTUtil jwtUtil = new JWTUtil();
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        JWTHandlerFilterFunction jwtFilter = new JWTHandlerFilterFunction(
+                jwtUtil, mock(ReactiveUserDetailsService.class), JWTAuthenticationMode.STATELESS);
+        client = WebTestClient
+                .bindToRouterFunction(new ReactiveCustomerRouter().customerRoutes(
+                        new ReactiveCustomerHandler(customerService, jwtUtil), jwtFilter))
+                .build();
+    }
+
+    @Test
+    void getCustomersRequiresAToken() {
+        // When
+        // Then
+        client.get().uri("/api/v2/customers")
+                .exchange()
+                .expectStatus().isForbidden()
+                .expectBody(ApiError.class)
+                .value(error -> assertThat(error.statusCode()).isEqualTo(403));
+        verifyNoInteractions(customerService);
+    }
+
+    @Test
+    void getCustomersStreamsOneCustomerPerLine() {
+        // Given
+        when(customerService.getCustomers(0L, CustomerService.DEFAULT_PAGE_SIZE))
+                .thenReturn(Flux.just(customer(1L), customer(2L)));
+
+        // When
+        // Then
+        client.get().uri("/api/v2/customers")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.issueToken("ali@mail.com", "ROLE_USER"))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> assertThat(body.lines()).hasSize(2));
+    }
+
+    @Test
+    void getCustomersRejectsALimitAboveTheMaximum() {
+        // When
+        // Then
+        client.get().uri("/api/v2/customers?limit={limit}", CustomerService.MAX_PAGE_SIZE + 1)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.issueToken("ali@mail.com", "ROLE_USER"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ApiError.class)
+                .value(error -> assertThat(error.message())
+                        .isEqualTo("limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE)));
+        verify(customerService, never()).getCustomers(anyLong(), anyInt());
+    }
+
+    @Test
+    void getCustomerAnswersNotFoundWithAnApiError() {
+        // Given
+        when(customerService.getCustomer(10))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Customer with id [10] not found")));
+
+        // When
+        // Then
+        client.get().uri("/api/v2/customers/10")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.issueToken("ali@mail.com", "ROLE_USER"))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(ApiError.class)
+                .value(error -> {
+                    assertThat(error.path()).isEqualTo("/api/v2/customers/10");
+                    assertThat(error.message()).isEqualTo("Customer with id [10] not found");
+                });
+    }
+
+    @Test
+    void registerCustomerAnswersWithAToken() {
+        // Given
+        when(customerService.addCustomer(any())).thenReturn(Mono.just(1L));
+
+        // When
+        // Then
+        client.post().uri("/api/v2/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CustomerRegistrationRequest("Ali", "ali@mail.com", "password", 19, Gender.MALE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.AUTHORIZATION,
+                        token -> assertThat(jwtUtil.getSubject(token)).isEqualTo("ali@mail.com"));
+    }
+
+    @Test
+    void getCustomerProfileImageIsNotModifiedWhenTheETagMatches() {
+        // Given
+        when(customerService.getCustomerProfileImageId(10)).thenReturn(Mono.just("image"));
+
+        // When
+        // Then
+        client.get().uri("/api/v2/customers/10/profile-image")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"image\"")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"image\"");
+        verify(customerService, never()).getCustomerProfileImage(any(), any(), any());
+    }
+
+    @Test
+    void getCustomerProfileImageStreamsTheContent() {
+        // Given
+        byte[] tail = {1, 2, 3};
+        ResponsePublisher<GetObjectResponse> image = new ResponsePublisher<>(
+                GetObjectResponse.builder().contentLength((long) PNG.length + tail.length).build(),
+                SdkPublisher.adapt(Flux.just(ByteBuffer.wrap(PNG), ByteBuffer.wrap(tail))));
+        when(customerService.getCustomerProfileImageId(10)).thenReturn(Mono.just("image"));
+        when(customerService.getCustomerProfileImage(10, "image", 64)).thenReturn(Mono.just(image));
+
+        // When
+        // Then
+        byte[] body = client.get().uri("/api/v2/customers/10/profile-image?size=64")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.IMAGE_PNG)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"image_64\"")
+                .expectHeader().contentLength(PNG.length + tail.length)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(body).startsWith(PNG).endsWith(tail);
+    }
+
+    private static CustomerDTO customer(Long id) {
+        return new CustomerDTO(id, "Ali", "ali%s@mail.com".formatted(id), Gender.MALE, 19,
+                List.of("ROLE_USER"), "ali%s@mail.com".formatted(id), null, 0L);
+    }
+}
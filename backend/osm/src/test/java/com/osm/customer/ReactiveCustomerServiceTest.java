@@ -0,0 +1,172 @@
+package com.osm.customer;
+
+import com.osm.exception.DuplicateResourceException;
+import com.osm.exception.RequestValidationException;
+import com.osm.exception.StaleResourceException;
+import com.osm.s3.S3AsyncService;
+import com.osm.s3.S3Buckets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.ResponsePublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerRepository customerRepository;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private S3AsyncService s3AsyncService;
+    @Mock
+    private S3Buckets s3Buckets;
+    private final CacheManager cacheManager =
+            new ConcurrentMapCacheManager(CustomerCaches.BY_ID, CustomerCaches.BY_EMAIL);
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerService(customerRepository,
+                passwordEncoder,
+                new CustomerDTOMapper(),
+                s3AsyncService,
+                s3Buckets,
+                cacheManager);
+    }
+
+    @Test
+    void addCustomerStoresTheHashedPassword() {
+        // Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Ali", "ali@mail.com", "password", 19, Gender.MALE);
+        when(passwordEncoder.encode("password")).thenReturn("hash");
+        when(customerRepository.insertCustomer(any())).thenReturn(Mono.just(1L));
+        cacheManager.getCache(CustomerCaches.BY_EMAIL).put("ali@mail.com", "absent");
+
+        // When
+        Long id = underTest.addCustomer(request).block();
+
+        // Then
+        ArgumentCaptor<Customer> captor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerRepository).insertCustomer(captor.capture());
+        assertThat(captor.getValue().getPassword()).isEqualTo("hash");
+        assertThat(id).isEqualTo(1L);
+        assertThat(cacheManager.getCache(CustomerCaches.BY_EMAIL).get("ali@mail.com")).isNull();
+    }
+
+    @Test
+    void addCustomerWillThrowWhenEmailIsTaken() {
+        // Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Ali", "ali@mail.com", "password", 19, Gender.MALE);
+        when(passwordEncoder.encode("password")).thenReturn("hash");
+        when(customerRepository.insertCustomer(any())).thenReturn(Mono.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.addCustomer(request).block())
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+
+    @Test
+    void updateCustomerOnlySendsChangesAtTheVersionRead() {
+        // Given
+        Customer customer = new Customer(10L, "Ali", "ali@mail.com", "password", 19, Gender.MALE, null, 3L);
+        when(customerRepository.selectCustomerById(10)).thenReturn(Mono.just(customer));
+        when(customerRepository.updateCustomer(any())).thenReturn(Mono.just(
+                new Customer(10L, "Alex", "ali@mail.com", "password", 19, Gender.MALE, null, 4L)));
+        cacheManager.getCache(CustomerCaches.BY_ID).put(10L, customer);
+
+        // When
+        CustomerDTO actual = underTest.updateCustomer(10, new CustomerUpdateRequest("Alex", "ali@mail.com", null))
+                .block();
+
+        // Then
+        ArgumentCaptor<Customer> captor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerRepository).updateCustomer(captor.capture());
+        assertThat(captor.getValue().getName()).isEqualTo("Alex");
+        assertThat(captor.getValue().getEmail()).isNull();
+        assertThat(captor.getValue().getVersion()).isEqualTo(3L);
+        assertThat(actual.version()).isEqualTo(4L);
+        assertThat(cacheManager.getCache(CustomerCaches.BY_ID).get(10L)).isNull();
+    }
+
+    @Test
+    void updateCustomerWillThrowWhenThereAreNoChanges() {
+        // Given
+        Customer customer = new Customer(10L, "Ali", "ali@mail.com", "password", 19, Gender.MALE, null, 3L);
+        when(customerRepository.selectCustomerById(10)).thenReturn(Mono.just(customer));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(10, new CustomerUpdateRequest("Ali", null, 19)).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found !!");
+        verify(customerRepository, never()).updateCustomer(any());
+    }
+
+    @Test
+    void updateCustomerAtStaleVersionWillThrow() {
+        // Given
+        when(customerRepository.updateCustomer(any())).thenReturn(Mono.empty());
+        when(customerRepository.existsCustomerWithId(10)).thenReturn(Mono.just(true));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(10, new CustomerUpdateRequest("Alex", null, null, 2L))
+                .block())
+                .isInstanceOf(StaleResourceException.class)
+                .hasMessage("Customer with id [10] was modified, expected version [2]");
+    }
+
+    @Test
+    void deleteCustomerReleasesItsProfileImage() {
+        // Given
+        Customer customer = new Customer(10L, "Ali", "ali@mail.com", "password", 19, Gender.MALE, "image", 0L);
+        when(customerRepository.deleteCustomerById(10)).thenReturn(Mono.just(customer));
+        when(customerRepository.releaseProfileImage("image")).thenReturn(Mono.empty());
+
+        // When
+        underTest.deleteCustomerById(10).block();
+
+        // Then
+        verify(customerRepository).releaseProfileImage("image");
+    }
+
+    @Test
+    void getCustomerProfileImageFallsBackToTheOriginal() {
+        // Given
+        String profileImageId = "a".repeat(64);
+        @SuppressWarnings("unchecked")
+        ResponsePublisher<GetObjectResponse> original = mock(ResponsePublisher.class);
+        when(s3Buckets.getCustomer()).thenReturn("customer");
+        when(s3AsyncService.getObjectPublisher("customer", "profile-images/sha256/%s_64".formatted(profileImageId)))
+                .thenReturn(CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+        when(s3AsyncService.getObjectPublisher("customer", "profile-images/sha256/%s".formatted(profileImageId)))
+                .thenReturn(CompletableFuture.completedFuture(original));
+
+        // When
+        ResponsePublisher<GetObjectResponse> actual =
+                underTest.getCustomerProfileImage(10, profileImageId, 64).block();
+
+        // Then
+        assertThat(actual).isSameAs(original);
+    }
+}
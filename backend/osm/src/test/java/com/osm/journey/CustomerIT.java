@@ -25,6 +25,9 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.*;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpHeaders.CACHE_CONTROL;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 public class CustomerIT {
@@ -99,7 +102,8 @@ public class CustomerIT {
                 age,
                 List.of("ROLE_USER"),
                 email,
-                null
+                null,
+                0L
         );
 
         assertThat(allCustomers).contains(expectedCustomer);
@@ -298,7 +302,8 @@ public class CustomerIT {
                 age,
                 List.of("ROLE_USER"),
                 email,
-                null
+                null,
+                1L
         );
         assertThat(updatedCustomer).isEqualTo(expected);
     }
@@ -404,6 +409,30 @@ public class CustomerIT {
         byte[] actual = Files.toByteArray(image.getFile());
         assertThat(actual).isEqualTo(downloadedImage);
 
+        // the image id is the ETag, a matching conditional request gets no body
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{customerId}/profile-image", customerDTO.id())
+                .header(IF_NONE_MATCH, "\"%s\"".formatted(profileImageId))
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // the versioned url can be cached for good
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{customerId}/profile-image/{profileImageId}",
+                        customerDTO.id(), profileImageId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(ETAG, "\"%s\"".formatted(profileImageId))
+                .expectHeader()
+                .valueEquals(CACHE_CONTROL, "max-age=31536000, public, immutable")
+                .expectHeader()
+                .contentType(MediaType.IMAGE_JPEG);
+
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.osm.jwt;
+
+import com.osm.customer.Customer;
+import com.osm.customer.Gender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JWTAuthenticationFilterTest {
+
+    private final JWTUtil jwtUtil = new JWTUtil();
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void statelessModeAuthenticatesFromClaimsOnly() throws Exception {
+        // Given
+        JWTAuthenticationFilter underTest = new JWTAuthenticationFilter(
+                jwtUtil, userDetailsService, JWTAuthenticationMode.STATELESS);
+        MockHttpServletRequest request = bearer(jwtUtil.issueToken("ali@mail.com", "ROLE_USER"));
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getName()).isEqualTo("ali@mail.com");
+        assertThat(authentication.getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_USER");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void databaseModeLoadsTheCustomer() throws Exception {
+        // Given
+        JWTAuthenticationFilter underTest = new JWTAuthenticationFilter(
+                jwtUtil, userDetailsService, JWTAuthenticationMode.DATABASE);
+        Customer customer = new Customer(
+                1L, "Ali", "ali@mail.com", "azerty.123..", 44, Gender.MALE
+        );
+        when(userDetailsService.loadUserByUsername("ali@mail.com")).thenReturn(customer);
+        MockHttpServletRequest request = bearer(jwtUtil.issueToken("ali@mail.com", "ROLE_USER"));
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Then
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getPrincipal()).isEqualTo(customer);
+        verify(userDetailsService).loadUserByUsername("ali@mail.com");
+    }
+
+    private static MockHttpServletRequest bearer(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
@@ -0,0 +1,82 @@
+package com.osm.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the token checks done by {@link JWTAuthenticationFilter} for one request:
+ * the former three parses, each with a freshly built key and parser, against a
+ * single {@link JWTUtil#verify(String)}.
+ * <p>
+ * Run from {@code backend/osm} after {@code mvn test-compile} with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.osm.jwt.JWTUtilBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTUtilBenchmark {
+
+    private static final String SECRET_KEY = "azerty_123456789_azerty_123456789_azerty_123456789";
+
+    private JWTUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JWTUtil();
+        token = jwtUtil.issueToken("ali@mail.com", "ROLE_USER");
+    }
+
+    @Benchmark
+    public boolean parsePerCheck() {
+        // getSubject, then isTokenValid -> getSubject + isTokenExpired
+        String subject = parseWithNewParser(token).getSubject();
+        return parseWithNewParser(token).getSubject().equals(subject)
+                && !parseWithNewParser(token).getExpiration().before(Date.from(Instant.now()));
+    }
+
+    @Benchmark
+    public boolean verifyOnce() {
+        Claims claims = jwtUtil.verify(token);
+        return jwtUtil.isTokenValid(claims, claims.getSubject());
+    }
+
+    private static Claims parseWithNewParser(String token) {
+        return Jwts
+                .parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JWTUtilBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
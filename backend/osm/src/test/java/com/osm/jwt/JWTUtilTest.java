@@ -0,0 +1,40 @@
+package com.osm.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JWTUtilTest {
+
+    private final JWTUtil underTest = new JWTUtil();
+
+    @Test
+    void verifyReturnsClaims() {
+        // Given
+        String token = underTest.issueToken("ali@mail.com", "ROLE_USER");
+
+        // When
+        Claims actual = underTest.verify(token);
+
+        // Then
+        assertThat(actual.getSubject()).isEqualTo("ali@mail.com");
+        assertThat(underTest.getScopes(actual)).containsExactly("ROLE_USER");
+        assertThat(underTest.isTokenValid(actual, "ali@mail.com")).isTrue();
+    }
+
+    @Test
+    void verifyRejectsTamperedToken() {
+        // Given
+        String token = underTest.issueToken("ali@mail.com", "ROLE_USER");
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("A") ? "BB" : "AA");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.verify(tampered))
+                .isInstanceOf(JwtException.class);
+    }
+}
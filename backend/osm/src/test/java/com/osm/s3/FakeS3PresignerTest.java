@@ -0,0 +1,100 @@
+package com.osm.s3;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FakeS3PresignerTest {
+
+    private final FakeS3Presigner underTest = new FakeS3Presigner("http://localhost:8080");
+
+    @Test
+    void presignsUrlsToTheLocalEndpoint() throws Exception {
+        // When
+        PresignedGetObjectRequest presigned = presignGet("profile-images/1/abc", Duration.ofMinutes(5));
+
+        // Then
+        assertThat(presigned.url().toString())
+                .startsWith("http://localhost:8080/fake-s3/customer?key=profile-images%2F1%2Fabc&expires=");
+        assertThat(presigned.isBrowserExecutable()).isTrue();
+        assertThat(presigned.expiration()).isAfter(Instant.now());
+        MultiValueMap<String, String> query = query(presigned);
+        assertThat(underTest.isValid(
+                SdkHttpMethod.GET,
+                "customer",
+                query.getFirst("key"),
+                Long.parseLong(query.getFirst("expires")),
+                query.getFirst("signature")
+        )).isTrue();
+    }
+
+    @Test
+    void rejectsChangedUrls() throws Exception {
+        // Given
+        MultiValueMap<String, String> query = query(presignGet("profile-images/1/abc", Duration.ofMinutes(5)));
+        long expires = Long.parseLong(query.getFirst("expires"));
+        String signature = query.getFirst("signature");
+
+        // When
+        // Then
+        assertThat(underTest.isValid(SdkHttpMethod.PUT, "customer", "profile-images/1/abc", expires, signature))
+                .isFalse();
+        assertThat(underTest.isValid(SdkHttpMethod.GET, "customer", "profile-images/2/abc", expires, signature))
+                .isFalse();
+        assertThat(underTest.isValid(SdkHttpMethod.GET, "customer", "profile-images/1/abc", expires + 60, signature))
+                .isFalse();
+        assertThat(new FakeS3Presigner("http://localhost:8080")
+                .isValid(SdkHttpMethod.GET, "customer", "profile-images/1/abc", expires, signature))
+                .isFalse();
+    }
+
+    @Test
+    void rejectsExpiredUrls() throws Exception {
+        // Given
+        MultiValueMap<String, String> query = query(presignGet("profile-images/1/abc", Duration.ofSeconds(-5)));
+
+        // When
+        boolean valid = underTest.isValid(
+                SdkHttpMethod.GET,
+                "customer",
+                "profile-images/1/abc",
+                Long.parseLong(query.getFirst("expires")),
+                query.getFirst("signature")
+        );
+
+        // Then
+        assertThat(valid).isFalse();
+    }
+
+    private PresignedGetObjectRequest presignGet(String key, Duration duration) {
+        return underTest.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(duration)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket("customer")
+                        .key(key)
+                        .build())
+                .build());
+    }
+
+    private static MultiValueMap<String, String> query(PresignedGetObjectRequest presigned) throws Exception {
+        MultiValueMap<String, String> query = new LinkedMultiValueMap<>();
+        UriComponentsBuilder.fromUri(presigned.url().toURI())
+                .build()
+                .getQueryParams()
+                .forEach((name, values) -> values.forEach(value ->
+                        query.add(name, URLDecoder.decode(value, StandardCharsets.UTF_8))));
+        return query;
+    }
+}
@@ -0,0 +1,201 @@
+package com.osm.s3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakeS3Test {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path root;
+    private FakeS3 underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new FakeS3(root.toString());
+    }
+
+    @Test
+    void canPutAndGetObject() throws Exception {
+        // Given
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        put("profile-images/1/a", data);
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key("profile-images/1/a")
+                .build());
+
+        // Then
+        assertThat(actual.response().contentLength()).isEqualTo(data.length);
+        assertThat(actual.response().eTag()).isNotBlank();
+        try (actual) {
+            assertThat(actual).hasBinaryContent(data);
+        }
+    }
+
+    @Test
+    void overwritesAtomically() throws Exception {
+        // Given
+        put("profile-images/1/a", "Hello World".getBytes());
+
+        // When
+        put("profile-images/1/a", "Bye".getBytes());
+
+        // Then
+        assertThat(root.resolve(BUCKET).resolve("profile-images/1/a")).hasBinaryContent("Bye".getBytes());
+        try (var temporaryFiles = Files.list(root.resolve(".tmp"))) {
+            assertThat(temporaryFiles).isEmpty();
+        }
+    }
+
+    @Test
+    void canHeadAndDeleteObject() {
+        // Given
+        put("profile-images/1/a", "Hello World".getBytes());
+
+        // When
+        HeadObjectResponse head = underTest.headObject(HeadObjectRequest.builder()
+                .bucket(BUCKET)
+                .key("profile-images/1/a")
+                .build());
+        underTest.deleteObject(DeleteObjectRequest.builder()
+                .bucket(BUCKET)
+                .key("profile-images/1/a")
+                .build());
+
+        // Then
+        assertThat(head.contentLength()).isEqualTo(11);
+        assertThatThrownBy(() -> underTest.headObject(HeadObjectRequest.builder()
+                .bucket(BUCKET)
+                .key("profile-images/1/a")
+                .build()))
+                .isInstanceOf(NoSuchKeyException.class);
+    }
+
+    @Test
+    void canDeleteObjectsInBatch() {
+        // Given
+        put("profile-images/1/a", "Hello World".getBytes());
+        put("profile-images/1/a_64", "Hello".getBytes());
+
+        // When
+        DeleteObjectsResponse actual = underTest.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(BUCKET)
+                .delete(Delete.builder()
+                        .objects(
+                                ObjectIdentifier.builder().key("profile-images/1/a").build(),
+                                ObjectIdentifier.builder().key("profile-images/1/a_64").build(),
+                                ObjectIdentifier.builder().key("../other").build()
+                        )
+                        .build())
+                .build());
+
+        // Then
+        assertThat(actual.deleted())
+                .extracting(DeletedObject::key)
+                .containsExactly("profile-images/1/a", "profile-images/1/a_64");
+        assertThat(actual.errors())
+                .extracting(S3Error::key)
+                .containsExactly("../other");
+        assertThat(root.resolve(BUCKET).resolve("profile-images/1")).isEmptyDirectory();
+    }
+
+    @Test
+    void throwsWhenGettingMissingKey() {
+        assertThatThrownBy(() -> underTest.getObject(GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key("missing")
+                .build()))
+                .isInstanceOf(NoSuchKeyException.class);
+    }
+
+    @Test
+    void listsObjectsInPages() {
+        // Given
+        List.of("profile-images/2/b", "profile-images/1/a", "profile-images/1/b", "documents/1")
+                .forEach(key -> put(key, key.getBytes()));
+
+        // When
+        ListObjectsV2Response first = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET)
+                .prefix("profile-images/")
+                .maxKeys(2)
+                .build());
+        ListObjectsV2Response second = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET)
+                .prefix("profile-images/")
+                .maxKeys(2)
+                .continuationToken(first.nextContinuationToken())
+                .build());
+
+        // Then
+        assertThat(first.contents()).extracting(S3Object::key)
+                .containsExactly("profile-images/1/a", "profile-images/1/b");
+        assertThat(first.isTruncated()).isTrue();
+        assertThat(second.contents()).extracting(S3Object::key)
+                .containsExactly("profile-images/2/b");
+        assertThat(second.isTruncated()).isFalse();
+        assertThat(second.nextContinuationToken()).isNull();
+    }
+
+    @Test
+    void groupsKeysByDelimiter() {
+        // Given
+        List.of("profile-images/2/b", "profile-images/1/a", "profile-images/1/b", "documents/1")
+                .forEach(key -> put(key, key.getBytes()));
+
+        // When
+        ListObjectsV2Response first = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET)
+                .prefix("profile-images/")
+                .delimiter("/")
+                .maxKeys(1)
+                .build());
+        ListObjectsV2Response second = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET)
+                .prefix("profile-images/")
+                .delimiter("/")
+                .continuationToken(first.nextContinuationToken())
+                .build());
+
+        // Then
+        assertThat(first.contents()).isEmpty();
+        assertThat(first.commonPrefixes()).extracting(CommonPrefix::prefix)
+                .containsExactly("profile-images/1/");
+        assertThat(second.commonPrefixes()).extracting(CommonPrefix::prefix)
+                .containsExactly("profile-images/2/");
+        assertThat(second.keyCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsKeysOutsideOfTheBucket() {
+        assertThatThrownBy(() -> put("../other/secret", "Hello World".getBytes()))
+                .isInstanceOf(S3Exception.class)
+                .hasMessageContaining("Invalid name");
+        assertThat(root.resolve("other")).doesNotExist();
+    }
+
+    private void put(String key, byte[] data) {
+        underTest.putObject(
+                PutObjectRequest.builder()
+                        .bucket(BUCKET)
+                        .key(key)
+                        .build(),
+                RequestBody.fromBytes(data)
+        );
+    }
+}
@@ -0,0 +1,109 @@
+package com.osm.s3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3AsyncServiceTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path root;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeS3Async s3;
+    private S3AsyncService underTest;
+
+    @BeforeEach
+    void setUp() {
+        s3 = new FakeS3Async(new FakeS3(root.resolve("s3").toString()));
+        S3ObjectCache objectCache = new S3ObjectCache(Set.of(BUCKET), 1024, 64, false, meterRegistry);
+        underTest = new S3AsyncService(s3, objectCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3.close();
+    }
+
+    @Test
+    void canPutAndGetObject() {
+        // Given
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        underTest.putObject(BUCKET, "Test1", data).join();
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(BUCKET, "Test1").join();
+
+        // Then
+        assertThat(actual).hasBinaryContent(data);
+        assertThat(actual.response().contentLength()).isEqualTo(data.length);
+    }
+
+    @Test
+    void streamsObjectsTooLargeToCache() {
+        // Given
+        byte[] data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+        underTest.putObject(BUCKET, "Test1", data).join();
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(BUCKET, "Test1").join();
+
+        // Then
+        assertThat(actual.response().contentLength()).isEqualTo(data.length);
+        assertThat(actual).hasBinaryContent(data);
+        assertThat(meterRegistry.get("s3.object.cache.size.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void canPutObjectFromFile() throws Exception {
+        // Given
+        byte[] data = "Hello World".getBytes();
+        Path file = Files.write(root.resolve("upload"), data);
+
+        // When
+        underTest.putObject(BUCKET, "Test1", file).join();
+
+        // Then
+        assertThat(underTest.getObject(BUCKET, "Test1").join()).hasBinaryContent(data);
+    }
+
+    @Test
+    void servesRewrittenObjectsFresh() {
+        // Given
+        underTest.putObject(BUCKET, "Test1", "Hello World".getBytes()).join();
+        underTest.getObject(BUCKET, "Test1").join();
+
+        // When
+        underTest.putObject(BUCKET, "Test1", "Hello again".getBytes()).join();
+
+        // Then
+        assertThat(underTest.getObject(BUCKET, "Test1").join()).hasBinaryContent("Hello again".getBytes());
+    }
+
+    @Test
+    void failsWithNoSuchKeyForMissingObjects() {
+        // When
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> actual = underTest.getObject(BUCKET, "missing");
+
+        // Then
+        assertThat(actual).failsWithin(Duration.ofSeconds(5));
+        assertThat(actual.handle((object, e) -> S3AsyncService.isNoSuchKey(e)).join()).isTrue();
+        assertThat(actual.thenApply(object -> object).handle((object, e) -> S3AsyncService.isNoSuchKey(e)).join())
+                .isTrue();
+    }
+}
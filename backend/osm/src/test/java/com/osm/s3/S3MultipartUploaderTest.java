@@ -0,0 +1,95 @@
+package com.osm.s3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class S3MultipartUploaderTest {
+
+    private static final int PART_SIZE = 1024;
+
+    @TempDir
+    private Path root;
+    private FakeS3 s3;
+    private S3MultipartUploader underTest;
+
+    @BeforeEach
+    void setUp() {
+        s3 = spy(new FakeS3(root.toString()));
+        underTest = new S3MultipartUploader(s3, 4 * PART_SIZE, PART_SIZE, 2, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void isMultipartFromThreshold() {
+        assertThat(underTest.isMultipart(4 * PART_SIZE - 1)).isFalse();
+        assertThat(underTest.isMultipart(4 * PART_SIZE)).isTrue();
+    }
+
+    @Test
+    void canUploadInParts() throws Exception {
+        // Given
+        byte[] data = new byte[PART_SIZE * 7 + 100];
+        new Random(42).nextBytes(data);
+
+        // When
+        underTest.upload("customer", "documents/1", new ByteArrayInputStream(data));
+
+        // Then
+        assertThat(Files.readAllBytes(root.resolve("customer/documents/1"))).isEqualTo(data);
+        assertThat(root.resolve(".multipart")).isEmptyDirectory();
+    }
+
+    @Test
+    void canUploadExactMultipleOfPartSize() throws Exception {
+        // Given
+        byte[] data = new byte[PART_SIZE * 3];
+        new Random(7).nextBytes(data);
+
+        // When
+        underTest.upload("customer", "documents/2", new ByteArrayInputStream(data));
+
+        // Then
+        assertThat(Files.readAllBytes(root.resolve("customer/documents/2"))).isEqualTo(data);
+    }
+
+    @Test
+    void abortsWhenAPartFails() {
+        // Given
+        byte[] data = new byte[PART_SIZE * 5];
+        doThrow(new IllegalStateException("part failed"))
+                .when(s3).uploadPart(argThat((UploadPartRequest request) -> request.partNumber() == 2),
+                        any(RequestBody.class));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.upload("customer", "documents/3", new ByteArrayInputStream(data)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("failed to upload [documents/3] in parts")
+                .hasRootCauseMessage("part failed");
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        assertThat(root.resolve("customer/documents/3")).doesNotExist();
+        assertThat(root.resolve(".multipart")).isEmptyDirectory();
+    }
+}
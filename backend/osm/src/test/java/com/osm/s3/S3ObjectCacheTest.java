@@ -0,0 +1,153 @@
+package com.osm.s3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3ObjectCacheTest {
+
+    private static final String BUCKET = "customer";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesSmallObjectsFromMemory() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 64, false, meterRegistry);
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        ResponseInputStream<GetObjectResponse> first = underTest.get(BUCKET, "Test1", loader(data));
+        ResponseInputStream<GetObjectResponse> second = underTest.get(BUCKET, "Test1", loader(data));
+
+        // Then
+        assertThat(first).hasBinaryContent(data);
+        assertThat(second).hasBinaryContent(data);
+        assertThat(second.response().contentLength()).isEqualTo(data.length);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("s3.object.cache.size.bytes").gauge().value())
+                .isEqualTo(data.length);
+    }
+
+    @Test
+    void canKeepObjectsOffHeap() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 64, true, meterRegistry);
+        byte[] data = "Hello World".getBytes();
+        underTest.get(BUCKET, "Test1", loader(data));
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.get(BUCKET, "Test1", loader(data));
+
+        // Then
+        assertThat(actual).hasBinaryContent(data);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void streamsLargeObjectsFromS3() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 4, false, meterRegistry);
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        underTest.get(BUCKET, "Test1", loader(data));
+        ResponseInputStream<GetObjectResponse> actual = underTest.get(BUCKET, "Test1", loader(data));
+
+        // Then
+        assertThat(actual).hasBinaryContent(data);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void ignoresOtherBuckets() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 64, false, meterRegistry);
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        underTest.get("documents", "Test1", loader(data));
+        underTest.get("documents", "Test1", loader(data));
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void reloadsInvalidatedObjects() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 64, false, meterRegistry);
+        underTest.get(BUCKET, "Test1", loader("Hello World".getBytes()));
+
+        // When
+        underTest.invalidate(BUCKET, "Test1");
+        ResponseInputStream<GetObjectResponse> actual =
+                underTest.get(BUCKET, "Test1", loader("Hello again".getBytes()));
+
+        // Then
+        assertThat(actual).hasBinaryContent("Hello again".getBytes());
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void concurrentMissesLoadTheObjectOnce() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 64, false, meterRegistry);
+        byte[] data = "Hello World".getBytes();
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> load = new CompletableFuture<>();
+        Supplier<CompletableFuture<ResponseInputStream<GetObjectResponse>>> loader = () -> {
+            loads.incrementAndGet();
+            return load;
+        };
+
+        // When
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> first = underTest.getAsync(BUCKET, "Test1", loader);
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> second = underTest.getAsync(BUCKET, "Test1", loader);
+        load.complete(new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength((long) data.length).build(),
+                new ByteArrayInputStream(data)));
+
+        // Then
+        assertThat(first.join()).hasBinaryContent(data);
+        assertThat(second.join()).hasBinaryContent(data);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("single.flight.calls").tag("result", "collapsed").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void returnsLargeObjectsUnreadFromAsyncLoads() {
+        // Given
+        S3ObjectCache underTest = new S3ObjectCache(Set.of(BUCKET), 1024, 4, false, meterRegistry);
+        ResponseInputStream<GetObjectResponse> object = loader("Hello World".getBytes()).get();
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual =
+                underTest.getAsync(BUCKET, "Test1", () -> CompletableFuture.completedFuture(object)).join();
+
+        // Then
+        assertThat(actual).isSameAs(object);
+        assertThat(actual).hasBinaryContent("Hello World".getBytes());
+        assertThat(meterRegistry.get("s3.object.cache.size.bytes").gauge().value()).isZero();
+    }
+
+    private Supplier<ResponseInputStream<GetObjectResponse>> loader(byte[] data) {
+        return () -> {
+            loads.incrementAndGet();
+            return new ResponseInputStream<>(
+                    GetObjectResponse.builder().contentLength((long) data.length).build(),
+                    new ByteArrayInputStream(data)
+            );
+        };
+    }
+}
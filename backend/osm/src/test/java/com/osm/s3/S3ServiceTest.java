@@ -12,12 +12,24 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -25,11 +37,17 @@ class S3ServiceTest {
     @ExtendWith(MockitoExtension.class)
     @Mock
     private S3Client s3Client;
+    @Mock
+    private S3MultipartUploader multipartUploader;
+    @Mock
+    private S3ObjectCache objectCache;
+    @Mock
+    private ObjectPresigner presigner;
     private S3Service underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new S3Service(s3Client);
+        underTest = new S3Service(s3Client, multipartUploader, objectCache, presigner, Duration.ofMinutes(5));
     }
 
     @Test
@@ -62,7 +80,127 @@ class S3ServiceTest {
         assertThat(requestBodyArgumentCaptorValue.contentStreamProvider()
                 .newStream().readAllBytes()).isEqualTo(RequestBody.fromBytes(data)
                 .contentStreamProvider().newStream().readAllBytes());
+        verify(objectCache).invalidate(bucket, key);
+
+    }
+
+    @Test
+    void canPutObjectFromStream() throws IOException {
+        // Given
+        String bucket = "customer";
+        String key = "Test1";
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        underTest.putObject(bucket, key, new ByteArrayInputStream(data), data.length);
+
+        // Then
+        ArgumentCaptor<PutObjectRequest> putObjectRequestArgumentCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> requestBodyArgumentCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        verify(s3Client).putObject(
+                putObjectRequestArgumentCaptor.capture(),
+                requestBodyArgumentCaptor.capture()
+        );
+
+        PutObjectRequest putObjectRequestArgumentCaptorValue = putObjectRequestArgumentCaptor.getValue();
+
+        assertThat(putObjectRequestArgumentCaptorValue.bucket()).isEqualTo(bucket);
+        assertThat(putObjectRequestArgumentCaptorValue.key()).isEqualTo(key);
+        assertThat(putObjectRequestArgumentCaptorValue.contentLength()).isEqualTo(data.length);
+        assertThat(requestBodyArgumentCaptor.getValue().optionalContentLength()).contains((long) data.length);
+        verify(objectCache).invalidate(bucket, key);
+    }
+
+    @Test
+    void putsLargeObjectsInParts() {
+        // Given
+        String bucket = "customer";
+        String key = "Test1";
+        InputStream content = new ByteArrayInputStream(new byte[0]);
+        long contentLength = 64L * 1024 * 1024;
+        when(multipartUploader.isMultipart(contentLength)).thenReturn(true);
+
+        // When
+        underTest.putObject(bucket, key, content, contentLength);
+
+        // Then
+        verify(multipartUploader).upload(bucket, key, content);
+        verify(objectCache).invalidate(bucket, key);
+        verifyNoInteractions(s3Client);
+    }
 
+    @Test
+    void canGetObjectStream() {
+        // Given
+        String bucket = "customer";
+        String key = "Test1";
+
+        GetObjectRequest getobjectRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+
+        ResponseInputStream<GetObjectResponse> res = mock(ResponseInputStream.class);
+        when(s3Client.getObject(eq(getobjectRequest)))
+                .thenReturn(res);
+        when(objectCache.get(eq(bucket), eq(key), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObjectStream(bucket, key);
+
+        // Then
+        assertThat(actual).isSameAs(res);
+        verifyNoInteractions(res);
+    }
+
+    @Test
+    void canPresignGetObject() throws MalformedURLException {
+        // Given
+        String bucket = "customer";
+        String key = "Test1";
+        Instant expiration = Instant.now().plus(Duration.ofMinutes(5));
+        PresignedGetObjectRequest presigned = mock(PresignedGetObjectRequest.class);
+        when(presigned.url()).thenReturn(URI.create("https://customer.s3.amazonaws.com/Test1?X-Amz-Signature=abc").toURL());
+        when(presigned.expiration()).thenReturn(expiration);
+        when(presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenReturn(presigned);
+
+        // When
+        PresignedUrl actual = underTest.presignGetObject(bucket, key);
+
+        // Then
+        ArgumentCaptor<GetObjectPresignRequest> requestArgumentCaptor =
+                ArgumentCaptor.forClass(GetObjectPresignRequest.class);
+        verify(presigner).presignGetObject(requestArgumentCaptor.capture());
+        assertThat(requestArgumentCaptor.getValue().signatureDuration()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(requestArgumentCaptor.getValue().getObjectRequest().bucket()).isEqualTo(bucket);
+        assertThat(requestArgumentCaptor.getValue().getObjectRequest().key()).isEqualTo(key);
+        assertThat(actual).isEqualTo(new PresignedUrl(
+                "https://customer.s3.amazonaws.com/Test1?X-Amz-Signature=abc", expiration));
+    }
+
+    @Test
+    void canPresignPutObject() throws MalformedURLException {
+        // Given
+        String bucket = "customer";
+        String key = "Test1";
+        Instant expiration = Instant.now().plus(Duration.ofMinutes(5));
+        PresignedPutObjectRequest presigned = mock(PresignedPutObjectRequest.class);
+        when(presigned.url()).thenReturn(URI.create("https://customer.s3.amazonaws.com/Test1?X-Amz-Signature=abc").toURL());
+        when(presigned.expiration()).thenReturn(expiration);
+        when(presigner.presignPutObject(any(PutObjectPresignRequest.class))).thenReturn(presigned);
+
+        // When
+        PresignedUrl actual = underTest.presignPutObject(bucket, key);
+
+        // Then
+        ArgumentCaptor<PutObjectPresignRequest> requestArgumentCaptor =
+                ArgumentCaptor.forClass(PutObjectPresignRequest.class);
+        verify(presigner).presignPutObject(requestArgumentCaptor.capture());
+        assertThat(requestArgumentCaptor.getValue().putObjectRequest().bucket()).isEqualTo(bucket);
+        assertThat(requestArgumentCaptor.getValue().putObjectRequest().key()).isEqualTo(key);
+        assertThat(actual.expiresAt()).isEqualTo(expiration);
     }
 
     @Test
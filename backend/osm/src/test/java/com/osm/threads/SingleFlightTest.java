@@ -0,0 +1,141 @@
+package com.osm.threads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> underTest = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsShareOneCall() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> underTest.execute("key", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "value";
+        }));
+        awaitCount("executed", 1);
+
+        // When
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(executor.submit(() -> underTest.execute("key", () -> {
+                calls.incrementAndGet();
+                return "other";
+            })));
+        }
+        awaitCount("collapsed", 5);
+        release.countDown();
+
+        // Then
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void concurrentCallsShareTheException() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> underTest.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        awaitCount("executed", 1);
+
+        // When
+        Future<String> follower = executor.submit(() -> underTest.execute("key", () -> "other"));
+        awaitCount("collapsed", 1);
+        release.countDown();
+
+        // Then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("failed");
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        // Given
+        underTest.execute("key", () -> "first");
+
+        // When
+        String actual = underTest.execute("key", () -> "second");
+
+        // Then
+        assertThat(actual).isEqualTo("second");
+        assertThat(count("executed")).isEqualTo(2);
+        assertThat(count("collapsed")).isZero();
+    }
+
+    @Test
+    void concurrentAsyncCallsShareOneCall() {
+        // Given
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = underTest.executeAsync("key", () -> call);
+
+        // When
+        CompletableFuture<String> second = underTest.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+        call.complete("value");
+
+        // Then
+        assertThat(first.join()).isEqualTo("value");
+        assertThat(second.join()).isEqualTo("value");
+        assertThat(count("collapsed")).isEqualTo(1);
+        assertThat(underTest.executeAsync("key", () -> CompletableFuture.completedFuture("next")).join())
+                .isEqualTo("next");
+    }
+
+    private void awaitCount(String result, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(result) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count(result)).isEqualTo(expected);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("single.flight.calls")
+                .tag("name", "test")
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
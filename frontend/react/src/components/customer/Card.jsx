@@ -25,7 +25,7 @@ import {errorNotification, successNotification} from "../../services/Notificatio
 import UpdateCustomerDrawer from "./UpdateCustomerDrawer.jsx";
 
 
-export default function CardWithImage({id, name, email, age, gender, RANDOM, fetchCustomers}) {
+export default function CardWithImage({id, name, email, age, gender, profileImageId, RANDOM, fetchCustomers}) {
 
     const { isOpen, onOpen, onClose } = useDisclosure()
     const cancelRef = useRef()
@@ -49,7 +49,7 @@ export default function CardWithImage({id, name, email, age, gender, RANDOM, fet
                 <Box h={'200px'} borderBottom={'1px'} borderColor="black">
                     <Img
                         src=
-                        {customerProfilePictureUrl(id)}
+                        {customerProfilePictureUrl(id, profileImageId)}
                         roundedTop={'sm'}
                         objectFit="cover"
                         h="full"
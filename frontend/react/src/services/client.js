@@ -82,5 +82,7 @@ export const uploadCustomerProfilePicture = async (id, formData) => {
     }
 }
 
-export const customerProfilePictureUrl = (id) =>
-    `${import.meta.env.VITE_API_BASE_URL}/api/v1/customers/${id}/profile-image`;
\ No newline at end of file
+export const customerProfilePictureUrl = (id, profileImageId) =>
+    profileImageId
+        ? `${import.meta.env.VITE_API_BASE_URL}/api/v1/customers/${id}/profile-image/${profileImageId}`
+        : `${import.meta.env.VITE_API_BASE_URL}/api/v1/customers/${id}/profile-image`;
\ No newline at end of file